@@ -4,6 +4,7 @@ import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 
@@ -68,4 +69,18 @@ public class KafkaBroker {
         }
         return new KafkaConsumer<String, String>(consumerProperties);
     }
+
+    // same as above, but values are handed to the given deserializer instead of the configured String one
+    public <V> KafkaConsumer<String, V> createConsumer(Properties optionalProperties, Deserializer<V> valueDeserializer){
+        ThreadLocalRandom local = ThreadLocalRandom.current();
+        consumerProperties.setProperty(ConsumerConfig.GROUP_ID_CONFIG,"Order-Simulator-"+local.nextInt(10));
+        if(optionalProperties !=null){
+            Enumeration<Object> keys = optionalProperties.keys();
+            while(keys.hasMoreElements()){
+                Object key = keys.nextElement();
+                consumerProperties.put(key, optionalProperties.get(key));
+            }
+        }
+        return new KafkaConsumer<String, V>(consumerProperties, new StringDeserializer(), valueDeserializer);
+    }
 }
@@ -0,0 +1,31 @@
+package com.ashish.md.codec;
+
+import org.apache.avro.Schema;
+import org.apache.kafka.common.serialization.Deserializer;
+
+// Kafka value deserializer that decodes the raw record bytes straight into the Avro class.
+// Runs on the consumer's polling thread; records are never reused because a poll hands out a whole batch.
+// A record that does not decode comes back as null and is counted, so the consumer moves past it.
+public class AvroDeserializer<T> implements Deserializer<T> {
+
+    private final AvroRecordDecoder<T> decoder;
+
+    public AvroDeserializer(AvroRecordDecoder<T> decoder) {
+        this.decoder = decoder;
+    }
+
+    public static <T> AvroDeserializer<T> forTopic(Class<T> type, Schema schema, String topic) {
+        return new AvroDeserializer<>(AvroRecordDecoder.forTopic(type, schema, topic));
+    }
+
+    public long getDropped() {
+        return decoder.getDropped();
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null)
+            return null;
+        return decoder.decode(data);
+    }
+}
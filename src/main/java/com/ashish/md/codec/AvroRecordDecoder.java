@@ -0,0 +1,195 @@
+package com.ashish.md.codec;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.JsonDecoder;
+import org.apache.avro.specific.SpecificDatumReader;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// One instance per consuming thread: reader, decoders and buffers are reused across messages, so it is not thread safe.
+public class AvroRecordDecoder<T> {
+
+    // RFC 4648 basic alphabet, -1 for bytes outside it
+    private static final int[] BASE64 = new int[128];
+
+    static {
+        Arrays.fill(BASE64, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++)
+            BASE64[alphabet.charAt(i)] = i;
+    }
+
+    private final Schema schema;
+    private final WireFormat wireFormat;
+    private final SpecificDatumReader<T> reader;
+    // only safe when callers copy what they need out of the record before the next decode
+    private final boolean reuseRecords;
+
+    private final ReusableInputStream jsonInput = new ReusableInputStream();
+    private BinaryDecoder binaryDecoder;
+    private JsonDecoder jsonDecoder;
+    private byte[] buffer = new byte[512];
+    // Base64 text of JSON payloads and text messages, before it is decoded into buffer
+    private byte[] text = new byte[512];
+    private T record;
+    // records that did not decode: bad Base64, a truncated body or a body that does not match the schema
+    private long dropped;
+
+    public AvroRecordDecoder(Class<T> type, Schema schema, WireFormat wireFormat) {
+        this(type, schema, wireFormat, false);
+    }
+
+    public AvroRecordDecoder(Class<T> type, Schema schema, WireFormat wireFormat, boolean reuseRecords) {
+        this.schema = schema;
+        this.wireFormat = wireFormat;
+        this.reuseRecords = reuseRecords;
+        this.reader = new SpecificDatumReader<>(type);
+    }
+
+    public static <T> AvroRecordDecoder<T> forTopic(Class<T> type, Schema schema, String topic) {
+        return new AvroRecordDecoder<>(type, schema, WireFormat.forTopic(topic));
+    }
+
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    // payload as it arrives on the wire: Base64 text for JSON, raw Avro bytes for BINARY.
+    // Every decode returns null for a record it cannot read rather than throwing, so one bad record is skipped
+    // instead of failing the poll that carried it again and again.
+    public T decode(byte[] payload) {
+        if (wireFormat == WireFormat.BINARY)
+            return decodeBinary(payload, payload.length);
+        int length = decodeBase64(payload, payload.length);
+        return decodeJson(buffer, length);
+    }
+
+    // text transports always carry Base64, whatever the encoding underneath
+    public T decode(String message) {
+        int length = message.length();
+        if (text.length < length)
+            text = new byte[Math.max(length, text.length * 2)];
+        // Base64 is ASCII, so each char is its own byte
+        for (int i = 0; i < length; i++)
+            text[i] = (byte) message.charAt(i);
+        int decoded = decodeBase64(text, length);
+        return wireFormat == WireFormat.JSON ? decodeJson(buffer, decoded) : decodeBinary(buffer, decoded);
+    }
+
+    public T decode(Message msg) throws JMSException {
+        if (msg instanceof BytesMessage) {
+            BytesMessage message = (BytesMessage) msg;
+            int length = (int) message.getBodyLength();
+            if (wireFormat == WireFormat.BINARY) {
+                ensureCapacity(length);
+                message.readBytes(buffer, length);
+                return decodeBinary(buffer, length);
+            }
+            if (text.length < length)
+                text = new byte[Math.max(length, text.length * 2)];
+            message.readBytes(text, length);
+            return decodeJson(buffer, decodeBase64(text, length));
+        }
+        if (msg instanceof TextMessage)
+            return decode(((TextMessage) msg).getText());
+        return null;
+    }
+
+    private T decodeJson(byte[] data, int length) {
+        if (length < 0)
+            return drop("illegal Base64");
+        try {
+            jsonInput.reset(data, length);
+            if (jsonDecoder == null)
+                jsonDecoder = DecoderFactory.get().jsonDecoder(schema, jsonInput);
+            else
+                jsonDecoder.configure(jsonInput);
+            return read(jsonDecoder);
+        } catch (IOException | RuntimeException e) {
+            return drop(e.toString());
+        }
+    }
+
+    private T decodeBinary(byte[] data, int length) {
+        if (length < 0)
+            return drop("illegal Base64");
+        try {
+            binaryDecoder = DecoderFactory.get().binaryDecoder(data, 0, length, binaryDecoder);
+            return read(binaryDecoder);
+        } catch (IOException | RuntimeException e) {
+            // Avro reports a short or corrupt body as EOFException, AvroRuntimeException or an index out of bounds
+            return drop(e.toString());
+        }
+    }
+
+    // logs the 1st, 2nd, 4th, 8th... drop, so a topic full of bad records cannot flood the log
+    private T drop(String reason) {
+        dropped++;
+        if (Long.bitCount(dropped) == 1)
+            System.err.println("Dropped undecodable " + schema.getName() + " record (" + dropped + " so far): " + reason);
+        return null;
+    }
+
+    private T read(Decoder decoder) throws IOException {
+        T result = reader.read(reuseRecords ? record : null, decoder);
+        if (reuseRecords)
+            record = result;
+        return result;
+    }
+
+    // Base64 of source[0, length) into buffer, returning the decoded length. Decodes in place of
+    // Base64.getDecoder().decode(src, dst), which only takes a whole source array and so a fresh one per message.
+    // Returns -1 on a character outside the alphabet.
+    private int decodeBase64(byte[] source, int length) {
+        while (length > 0 && source[length - 1] == '=')
+            length--;
+        ensureCapacity(length * 3 / 4 + 3);
+        int decoded = 0;
+        int bits = 0;
+        int pending = 0;
+        for (int i = 0; i < length; i++) {
+            int value = source[i] >= 0 ? BASE64[source[i]] : -1;
+            if (value < 0)
+                return -1;
+            bits = bits << 6 | value;
+            pending += 6;
+            if (pending >= 8) {
+                pending -= 8;
+                buffer[decoded++] = (byte) (bits >> pending);
+            }
+        }
+        return decoded;
+    }
+
+    private void ensureCapacity(int length) {
+        if (buffer.length < length)
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+    }
+
+    // ByteArrayInputStream that can be pointed at a new buffer instead of being reallocated per message
+    private static class ReusableInputStream extends ByteArrayInputStream {
+        ReusableInputStream() {
+            super(new byte[0]);
+        }
+
+        void reset(byte[] data, int length) {
+            this.buf = data;
+            this.pos = 0;
+            this.count = length;
+            this.mark = 0;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ashish.md.codec;
+
+import com.ashish.marketdata.avro.*;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// Prints bytes allocated per decoded message for each message type, old per-message path vs AvroRecordDecoder.
+// Sample payloads are generated from the record schemas, so no broker is needed:
+//   java -cp ... com.ashish.md.codec.DecodeAllocationReport [messages]
+public class DecodeAllocationReport {
+
+    private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        System.out.println(String.format("%-14s %-7s %14s %14s %14s", "type", "wire", "per-message", "cached", "cached+reuse"));
+        report(MarketPrice.class, MarketPrice.getClassSchema(), messages);
+        report(MarketByPrice.class, MarketByPrice.getClassSchema(), messages);
+        report(Quote.class, Quote.getClassSchema(), messages);
+        report(Trade.class, Trade.getClassSchema(), messages);
+        report(Order.class, Order.getClassSchema(), messages);
+    }
+
+    private static <T> void report(Class<T> type, Schema schema, int messages) throws IOException {
+        for (WireFormat wireFormat : WireFormat.values()) {
+            byte[] payload = encode(schema, wireFormat);
+            AvroRecordDecoder<T> cached = new AvroRecordDecoder<>(type, schema, wireFormat);
+            AvroRecordDecoder<T> reusing = new AvroRecordDecoder<>(type, schema, wireFormat, true);
+            // warm up so class loading and JIT do not end up in the figures
+            measure(() -> perMessage(type, schema, wireFormat, payload), messages / 10);
+            measure(() -> cached.decode(payload), messages / 10);
+            measure(() -> reusing.decode(payload), messages / 10);
+            System.out.println(String.format("%-14s %-7s %14d %14d %14d", type.getSimpleName(), wireFormat,
+                    measure(() -> perMessage(type, schema, wireFormat, payload), messages),
+                    measure(() -> cached.decode(payload), messages),
+                    measure(() -> reusing.decode(payload), messages)));
+        }
+    }
+
+    // bytes allocated per message by the current thread
+    private static long measure(Runnable decode, int messages) {
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < messages; i++)
+            decode.run();
+        long after = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        return (after - before) / messages;
+    }
+
+    // what the updaters did before: fresh reader, decoder, Strings and record for every message
+    private static <T> T perMessage(Class<T> type, Schema schema, WireFormat wireFormat, byte[] payload) {
+        try {
+            SpecificDatumReader<T> reader = new SpecificDatumReader<>(type);
+            if (wireFormat == WireFormat.JSON) {
+                byte[] decoded = Base64.getDecoder().decode(new String(payload));
+                return reader.read(null, DecoderFactory.get().jsonDecoder(schema, new String(decoded)));
+            }
+            return reader.read(null, DecoderFactory.get().binaryDecoder(payload, null));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] encode(Schema schema, WireFormat wireFormat) throws IOException {
+        Object sample = sample(schema, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Encoder encoder = wireFormat == WireFormat.JSON
+                ? EncoderFactory.get().jsonEncoder(schema, out)
+                : EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<>(schema).write(sample, encoder);
+        encoder.flush();
+        return wireFormat == WireFormat.JSON ? Base64.getEncoder().encode(out.toByteArray()) : out.toByteArray();
+    }
+
+    // plausible values for any of the market data schemas; arrays get five entries like a five level book
+    private static Object sample(Schema schema, int seed) {
+        switch (schema.getType()) {
+            case RECORD:
+                GenericData.Record record = new GenericData.Record(schema);
+                int i = 0;
+                for (Schema.Field field : schema.getFields())
+                    record.put(field.pos(), sample(field.schema(), seed + i++));
+                return record;
+            case ARRAY:
+                List<Object> items = new ArrayList<>();
+                for (int level = 0; level < 5; level++)
+                    items.add(sample(schema.getElementType(), seed + level));
+                return items;
+            case UNION:
+                for (Schema branch : schema.getTypes())
+                    if (branch.getType() != Schema.Type.NULL)
+                        return sample(branch, seed);
+                return null;
+            case STRING:
+                return "RELIANCE";
+            case ENUM:
+                return new GenericData.EnumSymbol(schema, schema.getEnumSymbols().get(0));
+            case INT:
+                return 100 + seed;
+            case LONG:
+                return 1_600_000_000_000L + seed;
+            case FLOAT:
+                return 2150.5f + seed;
+            case DOUBLE:
+                return 2150.55 + seed;
+            case BOOLEAN:
+                return Boolean.TRUE;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ashish.md.codec;
+
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Lets one consumer subscribed to several topics decode each record with that topic's deserializer.
+public class TopicRoutingDeserializer implements Deserializer<Object> {
+
+    private final Map<String, Deserializer<?>> deserializers = new HashMap<>();
+
+    public void register(String topic, Deserializer<?> deserializer) {
+        deserializers.put(topic, deserializer);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        Deserializer<?> deserializer = deserializers.get(topic);
+        if (deserializer == null || data == null)
+            return null;
+        return deserializer.deserialize(topic, data);
+    }
+}
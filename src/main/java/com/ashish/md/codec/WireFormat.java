@@ -0,0 +1,14 @@
+package com.ashish.md.codec;
+
+public enum WireFormat {
+    // legacy publishers: Base64 wrapped Avro JSON
+    JSON,
+    // Avro binary encoding, raw bytes on the wire
+    BINARY;
+
+    // per topic selection, e.g. -Dexsim.nse.quotes.wire=binary
+    public static WireFormat forTopic(String topic) {
+        String value = System.getProperty(topic + ".wire", JSON.name());
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,274 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.MarketPrice;
+import com.ashish.marketdata.avro.Order;
+import com.ashish.marketdata.avro.Quote;
+import org.apache.avro.util.Utf8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// User-defined alerts, compiled once into predicates over the decoded records and filed by stream and symbol.
+// -Dmd.alerts names a file of rules, one per line, '#' starts a comment:
+//
+//   name: symbol|* field op operand
+//
+// field is price.<f>, quote.<f> or order.<f> (see the tables below); a numeric price or quote field may end in
+// .change, its difference from the symbol's previous update. op is one of < <= > >= == !=. operand is a number, a field of
+// the same stream optionally followed by * + - or / and a number, or for text fields a word compared as is:
+//
+//   near-lower: * price.lastPrice <= price.lowerCircuit * 1.01
+//   near-upper: * price.lastPrice >= price.upperCircuit * 0.99
+//   spike:      * price.volume.change > 100000
+//   wide:       INFY quote.spread > 0.5
+//   rejected:   * order.orderStatus == REJECTED
+public class AlertRules {
+
+    private static final Map<String, RuleBook.Field<MarketPrice>> PRICE_FIELDS = new HashMap<>();
+    private static final Map<String, RuleBook.Field<Quote>> QUOTE_FIELDS = new HashMap<>();
+    private static final Map<String, RuleBook.Field<Order>> ORDER_FIELDS = new HashMap<>();
+    private static final Map<String, Function<Order, CharSequence>> ORDER_TEXT = new HashMap<>();
+
+    static {
+        PRICE_FIELDS.put("lastPrice", (price, before) -> value(price.getLastPrice()));
+        PRICE_FIELDS.put("open", (price, before) -> value(price.getOpen()));
+        PRICE_FIELDS.put("high", (price, before) -> value(price.getHigh()));
+        PRICE_FIELDS.put("low", (price, before) -> value(price.getLow()));
+        PRICE_FIELDS.put("volume", (price, before) -> value(price.getVolume()));
+        PRICE_FIELDS.put("lastTradeSize", (price, before) -> value(price.getLastTradeSize()));
+        PRICE_FIELDS.put("lowerCircuit", (price, before) -> value(price.getLowerCircuit()));
+        PRICE_FIELDS.put("upperCircuit", (price, before) -> value(price.getUperCircuit()));
+        QUOTE_FIELDS.put("bid", (quote, before) -> value(quote.getBidprice()));
+        QUOTE_FIELDS.put("ask", (quote, before) -> value(quote.getAskprice()));
+        QUOTE_FIELDS.put("bidSize", (quote, before) -> value(quote.getBidsize()));
+        QUOTE_FIELDS.put("askSize", (quote, before) -> value(quote.getAsksize()));
+        QUOTE_FIELDS.put("spread", (quote, before) -> value(quote.getAskprice()) - value(quote.getBidprice()));
+        QUOTE_FIELDS.put("mid", (quote, before) -> (value(quote.getAskprice()) + value(quote.getBidprice())) / 2);
+        ORDER_FIELDS.put("quantity", (order, before) -> value(order.getQuantity()));
+        ORDER_FIELDS.put("filledQuantity", (order, before) -> value(order.getFilledQuantity()));
+        ORDER_FIELDS.put("remainingQuantity", (order, before) -> value(order.getRemainingQuantity()));
+        ORDER_FIELDS.put("limitPrice", (order, before) -> value(order.getLimitPrice()));
+        ORDER_TEXT.put("orderStatus", Order::getOrderStatus);
+        ORDER_TEXT.put("side", Order::getSide);
+        ORDER_TEXT.put("clientId", Order::getClientId);
+        ORDER_TEXT.put("clientName", Order::getClientName);
+        ORDER_TEXT.put("brokerId", Order::getBrokerId);
+        ORDER_TEXT.put("exchange", Order::getExchange);
+    }
+
+    // prices and quotes are state, an alert fires when its condition starts to hold; orders are events
+    private final RuleBook<MarketPrice> prices = new RuleBook<>(true);
+    private final RuleBook<Quote> quotes = new RuleBook<>(true);
+    private final RuleBook<Order> orders = new RuleBook<>(false);
+
+    public static AlertRules fromSystemProperties() {
+        String file = System.getProperty("md.alerts");
+        if (file == null)
+            return compile(Collections.emptyList());
+        try {
+            return compile(Files.readAllLines(Paths.get(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read alert rules from " + file, e);
+        }
+    }
+
+    public static AlertRules compile(List<String> lines) {
+        AlertRules rules = new AlertRules();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int comment = line.indexOf('#');
+            if (comment >= 0)
+                line = line.substring(0, comment);
+            if (line.trim().isEmpty())
+                continue;
+            try {
+                rules.add(line.trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Alert rule line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return rules;
+    }
+
+    public RuleBook<MarketPrice> getPrices() {
+        return prices;
+    }
+
+    public RuleBook<Quote> getQuotes() {
+        return quotes;
+    }
+
+    public RuleBook<Order> getOrders() {
+        return orders;
+    }
+
+    public int size() {
+        return prices.size() + quotes.size() + orders.size();
+    }
+
+    private void add(String line) {
+        int colon = line.indexOf(':');
+        if (colon <= 0)
+            throw new IllegalArgumentException("expected 'name: symbol field op operand' in " + line);
+        String name = line.substring(0, colon).trim();
+        String[] tokens = line.substring(colon + 1).trim().split("\\s+");
+        if (tokens.length != 4 && tokens.length != 6)
+            throw new IllegalArgumentException("expected 'symbol field op operand' after the name in " + line);
+        int symbol = "*".equals(tokens[0]) ? -1 : SymbolDictionary.SYMBOLS.id(tokens[0]);
+        String stream = tokens[1].substring(0, Math.max(0, tokens[1].indexOf('.')));
+        switch (stream) {
+            case "price":
+                prices.add(numeric(name, symbol, stream, PRICE_FIELDS, tokens));
+                break;
+            case "quote":
+                quotes.add(numeric(name, symbol, stream, QUOTE_FIELDS, tokens));
+                break;
+            case "order":
+                String field = tokens[1].substring("order.".length());
+                Function<Order, CharSequence> text = ORDER_TEXT.get(field);
+                orders.add(text != null ? text(name, symbol, text, tokens) : numeric(name, symbol, stream, ORDER_FIELDS, tokens));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown stream in " + tokens[1] + ", expected price, quote or order");
+        }
+    }
+
+    private static <R> RuleBook.Rule<R> numeric(String name, int symbol, String stream, Map<String, RuleBook.Field<R>> fields,
+                                                String[] tokens) {
+        RuleBook.Field<R> left = field(stream, fields, tokens[1]);
+        if (tokens.length == 4 && isNumber(tokens[3]))
+            return new RuleBook.Rule<>(name, symbol, compare(left, tokens[2], Double.parseDouble(tokens[3])), left);
+        RuleBook.Field<R> right = tokens.length == 4 ? field(stream, fields, tokens[3])
+                : arithmetic(field(stream, fields, tokens[3]), tokens[4], number(tokens[5]));
+        return new RuleBook.Rule<>(name, symbol, compare(left, tokens[2], right), left);
+    }
+
+    private static RuleBook.Rule<Order> text(String name, int symbol, Function<Order, CharSequence> field, String[] tokens) {
+        if (tokens.length != 4)
+            throw new IllegalArgumentException(tokens[1] + " is text, compare it with a single word");
+        String expected = tokens[3];
+        // decoded records carry Utf8: comparing bytes with a Utf8 constant decodes nothing
+        Utf8 expectedUtf8 = new Utf8(expected);
+        RuleBook.Condition<Order> equal = (order, before) -> {
+            CharSequence value = field.apply(order);
+            return value instanceof Utf8 ? expectedUtf8.equals(value) : value != null && expected.contentEquals(value);
+        };
+        switch (tokens[2]) {
+            case "==":
+                return new RuleBook.Rule<>(name, symbol, equal, null);
+            case "!=":
+                return new RuleBook.Rule<>(name, symbol, (order, before) -> !equal.test(order, before), null);
+            default:
+                throw new IllegalArgumentException(tokens[1] + " is text, only == and != apply");
+        }
+    }
+
+    private static <R> RuleBook.Field<R> field(String stream, Map<String, RuleBook.Field<R>> fields, String token) {
+        // both sides of a rule read the same record
+        if (!token.startsWith(stream + "."))
+            throw new IllegalArgumentException("expected a number or a " + stream + " field, got " + token);
+        String path = token.substring(stream.length() + 1);
+        boolean change = path.endsWith(".change");
+        if (change)
+            path = path.substring(0, path.length() - ".change".length());
+        // the previous record is the symbol's, not the order's
+        if (change && "order".equals(stream))
+            throw new IllegalArgumentException(token + ": .change applies to price and quote fields only");
+        RuleBook.Field<R> field = fields.get(path);
+        if (field == null)
+            throw new IllegalArgumentException("unknown field " + token + ", expected one of " + fields.keySet());
+        if (!change)
+            return field;
+        return (current, before) -> before == null ? Double.NaN : field.get(current, null) - field.get(before, null);
+    }
+
+    // one lambda per operator, so a rule does no dispatch on its operator when it runs. NaN never matches, != included:
+    // a missing field or the first update's .change is not "different"
+    private static <R> RuleBook.Condition<R> compare(RuleBook.Field<R> left, String op, double right) {
+        switch (op) {
+            case "<":
+                return (current, before) -> left.get(current, before) < right;
+            case "<=":
+                return (current, before) -> left.get(current, before) <= right;
+            case ">":
+                return (current, before) -> left.get(current, before) > right;
+            case ">=":
+                return (current, before) -> left.get(current, before) >= right;
+            case "==":
+                return (current, before) -> left.get(current, before) == right;
+            case "!=":
+                return (current, before) -> differ(left.get(current, before), right);
+            default:
+                throw new IllegalArgumentException("unknown operator " + op);
+        }
+    }
+
+    private static <R> RuleBook.Condition<R> compare(RuleBook.Field<R> left, String op, RuleBook.Field<R> right) {
+        switch (op) {
+            case "<":
+                return (current, before) -> left.get(current, before) < right.get(current, before);
+            case "<=":
+                return (current, before) -> left.get(current, before) <= right.get(current, before);
+            case ">":
+                return (current, before) -> left.get(current, before) > right.get(current, before);
+            case ">=":
+                return (current, before) -> left.get(current, before) >= right.get(current, before);
+            case "==":
+                return (current, before) -> left.get(current, before) == right.get(current, before);
+            case "!=":
+                return (current, before) -> differ(left.get(current, before), right.get(current, before));
+            default:
+                throw new IllegalArgumentException("unknown operator " + op);
+        }
+    }
+
+    private static <R> RuleBook.Field<R> arithmetic(RuleBook.Field<R> field, String op, double operand) {
+        switch (op) {
+            case "*":
+                return (current, before) -> field.get(current, before) * operand;
+            case "/":
+                return (current, before) -> field.get(current, before) / operand;
+            case "+":
+                return (current, before) -> field.get(current, before) + operand;
+            case "-":
+                return (current, before) -> field.get(current, before) - operand;
+            default:
+                throw new IllegalArgumentException("unknown arithmetic operator " + op);
+        }
+    }
+
+    private static boolean differ(double left, double right) {
+        return !Double.isNaN(left) && !Double.isNaN(right) && left != right;
+    }
+
+    private static boolean isNumber(String token) {
+        try {
+            Double.parseDouble(token);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static double number(String token) {
+        if (!isNumber(token))
+            throw new IllegalArgumentException("expected a number, got " + token);
+        return Double.parseDouble(token);
+    }
+
+    // a missing field is NaN, so no comparison on it matches
+    private static double value(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static double value(Long value) {
+        return value != null ? value : Double.NaN;
+    }
+}
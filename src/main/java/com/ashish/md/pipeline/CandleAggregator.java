@@ -0,0 +1,62 @@
+package com.ashish.md.pipeline;
+
+import java.util.Arrays;
+
+// 1s, 5s and 1m OHLCV candles per symbol, updated incrementally from the trade stream and indexed by
+// SymbolDictionary.SYMBOLS id. Each series keeps at most -Dmd.candles.session.seconds (default 8 hours) of history.
+// Fed by the trade updater thread as trades arrive; a reader holds the aggregator's lock while it looks at a series,
+// and the writer takes it for each trade.
+public class CandleAggregator {
+
+    public static final long[] INTERVALS = {1_000, 5_000, 60_000};
+
+    private final long sessionMillis;
+    // by symbol id, null for a symbol that has not traded
+    private CandleSeries[][] series = new CandleSeries[0][];
+    private int lastSymbol = -1;
+    // bumped by every trade, read without the lock
+    private volatile long version;
+
+    public CandleAggregator(long sessionMillis) {
+        this.sessionMillis = sessionMillis;
+    }
+
+    public static CandleAggregator fromSystemProperties() {
+        return new CandleAggregator(Long.getLong("md.candles.session.seconds", 8 * 60 * 60) * 1000);
+    }
+
+    public synchronized void onTrade(int symbol, long time, double price, long quantity) {
+        if (symbol < 0)
+            return;
+        if (symbol >= series.length)
+            series = Arrays.copyOf(series, Math.max(symbol + 1, series.length * 2));
+        CandleSeries[] intervals = series[symbol];
+        if (intervals == null) {
+            intervals = new CandleSeries[INTERVALS.length];
+            for (int i = 0; i < INTERVALS.length; i++)
+                intervals[i] = new CandleSeries(INTERVALS[i], (int) Math.min(Integer.MAX_VALUE, sessionMillis / INTERVALS[i]));
+            series[symbol] = intervals;
+        }
+        for (CandleSeries candles : intervals)
+            candles.onTrade(time, price, quantity);
+        lastSymbol = symbol;
+        version++;
+    }
+
+    // finest first, in the order of INTERVALS; null for a symbol that has not traded. Hold the lock while reading them
+    public CandleSeries[] getSeries(int symbol) {
+        return symbol >= 0 && symbol < series.length ? series[symbol] : null;
+    }
+
+    public CandleSeries[] getSeries(String symbol) {
+        return getSeries(SymbolDictionary.SYMBOLS.find(symbol));
+    }
+
+    public String getLastSymbol() {
+        return SymbolDictionary.SYMBOLS.name(lastSymbol);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,171 @@
+package com.ashish.md.pipeline;
+
+import java.util.Arrays;
+
+// OHLCV candles of one symbol at one interval, built trade by trade in parallel primitive arrays.
+// Only intervals that saw a trade get a candle; the arrays grow by doubling up to maxCandles and then
+// act as a ring, so the oldest candles are overwritten. Guarded by its CandleAggregator's lock.
+public class CandleSeries {
+
+    private final long intervalMillis;
+    private final int maxCandles;
+    private long[] start;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private long[] volume;
+    // physical index of the oldest candle
+    private int head;
+    private int size;
+    private long version;
+
+    public CandleSeries(long intervalMillis, int maxCandles) {
+        this.intervalMillis = intervalMillis;
+        this.maxCandles = Math.max(1, maxCandles);
+        int capacity = Math.min(64, this.maxCandles);
+        this.start = new long[capacity];
+        this.open = new double[capacity];
+        this.high = new double[capacity];
+        this.low = new double[capacity];
+        this.close = new double[capacity];
+        this.volume = new long[capacity];
+    }
+
+    public void onTrade(long time, double price, long quantity) {
+        long bucket = time - Math.floorMod(time, intervalMillis);
+        version++;
+        if (size > 0) {
+            int last = physical(size - 1);
+            if (bucket == start[last]) {
+                high[last] = Math.max(high[last], price);
+                low[last] = Math.min(low[last], price);
+                close[last] = price;
+                volume[last] += quantity;
+                return;
+            }
+            if (bucket < start[last]) {
+                // a late trade: fold it into its candle if we still have it, it cannot be the close any more
+                int candle = indexOf(bucket);
+                if (candle >= 0) {
+                    int at = physical(candle);
+                    high[at] = Math.max(high[at], price);
+                    low[at] = Math.min(low[at], price);
+                    volume[at] += quantity;
+                }
+                return;
+            }
+        }
+        append(bucket, price, quantity);
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // bumped by every trade, lets a chart skip repainting an unchanged series
+    public long getVersion() {
+        return version;
+    }
+
+    // candles are addressed 0 (oldest) to size() - 1 (newest)
+    public long start(int candle) {
+        return start[physical(candle)];
+    }
+
+    public double open(int candle) {
+        return open[physical(candle)];
+    }
+
+    public double high(int candle) {
+        return high[physical(candle)];
+    }
+
+    public double low(int candle) {
+        return low[physical(candle)];
+    }
+
+    public double close(int candle) {
+        return close[physical(candle)];
+    }
+
+    public long volume(int candle) {
+        return volume[physical(candle)];
+    }
+
+    // first candle starting at or after time, size() if there is none
+    public int firstAtOrAfter(long time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (start(mid) < time)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private int indexOf(long bucket) {
+        int candle = firstAtOrAfter(bucket);
+        return candle < size && start(candle) == bucket ? candle : -1;
+    }
+
+    private void append(long bucket, double price, long quantity) {
+        if (size == start.length && size < maxCandles)
+            grow(Math.min(size * 2, maxCandles));
+        int at;
+        if (size == start.length) {
+            // full: the newest candle takes the oldest one's slot
+            at = head;
+            head = (head + 1) % start.length;
+        } else {
+            at = physical(size);
+            size++;
+        }
+        start[at] = bucket;
+        open[at] = price;
+        high[at] = price;
+        low[at] = price;
+        close[at] = price;
+        volume[at] = quantity;
+    }
+
+    // unrolls the ring while copying, so the oldest candle lands at index 0
+    private void grow(int capacity) {
+        start = unroll(start, capacity);
+        open = unroll(open, capacity);
+        high = unroll(high, capacity);
+        low = unroll(low, capacity);
+        close = unroll(close, capacity);
+        volume = unroll(volume, capacity);
+        head = 0;
+    }
+
+    private long[] unroll(long[] values, int capacity) {
+        long[] copy = Arrays.copyOf(values, capacity);
+        if (head > 0) {
+            System.arraycopy(values, head, copy, 0, values.length - head);
+            System.arraycopy(values, 0, copy, values.length - head, head);
+        }
+        return copy;
+    }
+
+    private double[] unroll(double[] values, int capacity) {
+        double[] copy = Arrays.copyOf(values, capacity);
+        if (head > 0) {
+            System.arraycopy(values, head, copy, 0, values.length - head);
+            System.arraycopy(values, 0, copy, values.length - head, head);
+        }
+        return copy;
+    }
+
+    private int physical(int candle) {
+        return (head + candle) % start.length;
+    }
+}
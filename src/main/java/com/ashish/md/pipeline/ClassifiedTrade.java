@@ -0,0 +1,35 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.Trade;
+
+// A trade with the bid and ask that stood when it printed (NaN if no quote was known) and its aggressor side.
+public class ClassifiedTrade {
+
+    private final Trade trade;
+    private final double bid;
+    private final double ask;
+    private final TradeClassifier.Aggressor aggressor;
+
+    public ClassifiedTrade(Trade trade, double bid, double ask, TradeClassifier.Aggressor aggressor) {
+        this.trade = trade;
+        this.bid = bid;
+        this.ask = ask;
+        this.aggressor = aggressor;
+    }
+
+    public Trade getTrade() {
+        return trade;
+    }
+
+    public double getBid() {
+        return bid;
+    }
+
+    public double getAsk() {
+        return ask;
+    }
+
+    public TradeClassifier.Aggressor getAggressor() {
+        return aggressor;
+    }
+}
@@ -0,0 +1,105 @@
+package com.ashish.md.pipeline;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Latest value per symbol plus the set of symbols changed since the reader last looked.
+// One writer (the updater) publishes, one reader (the render loop) drains; however many updates a symbol gets
+// between two drains, the reader sees it once, with its newest value. Symbols are SymbolDictionary.SYMBOLS ids.
+public class ConflationStore<T> {
+
+    private final int capacity;
+    // symbol id -> slot + 1 (0: no slot yet), touched by the writer only
+    private int[] slots = new int[256];
+    private int used;
+    private final int[] symbols;
+    private final AtomicReferenceArray<T> values;
+    private final AtomicIntegerArray dirty;
+    // slots waiting for the reader; a slot is queued at most once, so the queue can never overflow
+    private final int[] dirtyQueue;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long dropped;
+    private volatile long published;
+
+    public ConflationStore(int capacity) {
+        this.capacity = capacity;
+        this.symbols = new int[capacity];
+        this.values = new AtomicReferenceArray<>(capacity);
+        this.dirty = new AtomicIntegerArray(capacity);
+        this.dirtyQueue = new int[capacity];
+    }
+
+    // -Dmd.conflation.symbols, the most symbols one store tracks
+    public static int defaultCapacity() {
+        return Integer.getInteger("md.conflation.symbols", 4096);
+    }
+
+    // false if the value was dropped: the store is full, or the record had no symbol
+    public boolean publish(int symbol, T value) {
+        if (symbol < 0) {
+            dropped++;
+            return false;
+        }
+        if (symbol >= slots.length)
+            slots = Arrays.copyOf(slots, Math.max(symbol + 1, slots.length * 2));
+        int slot = slots[symbol] - 1;
+        if (slot < 0) {
+            if (used == capacity) {
+                dropped++;
+                return false;
+            }
+            slot = used++;
+            symbols[slot] = symbol;
+            slots[symbol] = slot + 1;
+        }
+        values.set(slot, value);
+        published++;
+        if (dirty.compareAndSet(slot, 0, 1)) {
+            long sequence = tail.get();
+            dirtyQueue[(int) (sequence % capacity)] = slot;
+            tail.lazySet(sequence + 1);
+        }
+        return true;
+    }
+
+    public interface Sink<T> {
+        void accept(int symbol, T value);
+    }
+
+    // hands every symbol changed since the previous drain to the sink, once, by id, with its latest value. If the
+    // sink throws, the symbol it threw on counts as drained, so the next drain does not hand it the same value again
+    public int drainDirty(Sink<? super T> sink) {
+        long sequence = head.get();
+        long available = tail.get() - sequence;
+        long drained = 0;
+        try {
+            while (drained < available) {
+                int slot = dirtyQueue[(int) ((sequence + drained) % capacity)];
+                drained++;
+                // clear before reading so an update racing with us marks the slot dirty again
+                dirty.set(slot, 0);
+                sink.accept(symbols[slot], values.get(slot));
+            }
+        } finally {
+            head.lazySet(sequence + drained);
+        }
+        return (int) available;
+    }
+
+    public int dirtyCount() {
+        return (int) (tail.get() - head.get());
+    }
+
+    // updates accepted, including those later conflated away
+    public long getPublished() {
+        return published;
+    }
+
+    // updates for symbols that did not fit in the store
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.MarketByPrice;
+
+// One message of a delta depth feed as queued for the render loop: a delta, or a full book from the snapshot topic
+// that replaces the symbol's book. Both kinds share one ring so they apply in the order they arrived.
+public class DepthUpdate {
+
+    private final MarketByPrice book;
+    private final boolean snapshot;
+
+    public DepthUpdate(MarketByPrice book, boolean snapshot) {
+        this.book = book;
+        this.snapshot = snapshot;
+    }
+
+    public MarketByPrice getBook() {
+        return book;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,94 @@
+package com.ashish.md.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Bounded single-producer/single-consumer queue between an updater thread and the render loop.
+// Slots are allocated once; when the consumer falls behind, new events are dropped and counted instead of blocking the feed.
+public class EventRingBuffer<T> {
+
+    private final Object[] slots;
+    private final int mask;
+    // next sequence to read, advanced by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // next sequence to write, advanced by the producer only
+    private final AtomicLong tail = new AtomicLong();
+    // producer's last view of head, refreshed only when the buffer looks full
+    private long cachedHead;
+    private boolean overflowing;
+    // written by the producer only, readable from any thread
+    private volatile long dropped;
+    private volatile long overflows;
+
+    public EventRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Object[size];
+        this.mask = size - 1;
+    }
+
+    // -Dmd.ring.capacity, rounded up to a power of two
+    public static int defaultCapacity() {
+        return Integer.getInteger("md.ring.capacity", 16384);
+    }
+
+    public boolean offer(T event) {
+        long sequence = tail.get();
+        if (sequence - cachedHead >= slots.length) {
+            cachedHead = head.get();
+            if (sequence - cachedHead >= slots.length) {
+                dropped++;
+                if (!overflowing) {
+                    overflowing = true;
+                    overflows++;
+                }
+                return false;
+            }
+        }
+        overflowing = false;
+        slots[(int) sequence & mask] = event;
+        tail.lazySet(sequence + 1);
+        return true;
+    }
+
+    public int drain(Consumer<? super T> sink) {
+        return drain(sink, Integer.MAX_VALUE);
+    }
+
+    // if the sink throws, the event it threw on counts as consumed, so the next drain starts after it
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super T> sink, int limit) {
+        long sequence = head.get();
+        int available = (int) Math.min(tail.get() - sequence, limit);
+        int consumed = 0;
+        try {
+            while (consumed < available) {
+                int index = (int) (sequence + consumed) & mask;
+                T event = (T) slots[index];
+                slots[index] = null;
+                consumed++;
+                sink.accept(event);
+            }
+        } finally {
+            head.lazySet(sequence + consumed);
+        }
+        return available;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    // events rejected because the buffer was full
+    public long getDropped() {
+        return dropped;
+    }
+
+    // number of times the buffer went from accepting to full
+    public long getOverflows() {
+        return overflows;
+    }
+}
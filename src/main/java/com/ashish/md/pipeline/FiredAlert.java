@@ -0,0 +1,34 @@
+package com.ashish.md.pipeline;
+
+// One firing of an alert rule: which rule, for which symbol, when, and the value of the field it tested.
+public class FiredAlert {
+
+    private final long time;
+    private final String rule;
+    private final String symbol;
+    private final double value;
+
+    public FiredAlert(long time, String rule, String symbol, double value) {
+        this.time = time;
+        this.rule = rule;
+        this.symbol = symbol;
+        this.value = value;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    // NaN for a rule on a text field
+    public double getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,50 @@
+package com.ashish.md.pipeline;
+
+import java.util.Arrays;
+
+// Latency samples in power-of-two millisecond buckets: fixed memory, O(1) record, percentiles exact to within a factor of two.
+// Single-threaded: record and read from the same thread.
+public class LatencyHistogram {
+
+    private final long[] buckets = new long[64];
+    private long count;
+    private long max;
+
+    public void record(long millis) {
+        // a sender clock ahead of ours shows up as negative latency; count it as zero
+        if (millis < 0)
+            millis = 0;
+        buckets[64 - Long.numberOfLeadingZeros(millis)]++;
+        count++;
+        if (millis > max)
+            max = millis;
+    }
+
+    // upper bound, in milliseconds, of the bucket holding the given percentile (0-100)
+    public long percentile(double percentile) {
+        if (count == 0)
+            return 0;
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank)
+                return Math.min(bucket == 0 ? 0 : (1L << bucket) - 1, max);
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        max = 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.ashish.md.pipeline;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Live per-symbol analytics (VWAP, trade rate, time-weighted spread, mid, imbalance), updated incrementally from
+// the trade and quote streams by the updater threads as records arrive, and read by the market watch on the FX
+// thread. The window is -Dmd.analytics.window.seconds (default 60) of event time. Symbols are
+// SymbolDictionary.SYMBOLS ids. Thread-safe: each SymbolAnalytics guards itself, new symbols are added under a lock.
+public class MarketAnalytics {
+
+    private final long windowMillis;
+    // replaced, never written in place, when a symbol needs a longer array
+    private volatile SymbolAnalytics[] symbols = new SymbolAnalytics[256];
+    private volatile int size;
+    private final AtomicLong version = new AtomicLong();
+
+    public MarketAnalytics(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public static MarketAnalytics fromSystemProperties() {
+        return new MarketAnalytics(Long.getLong("md.analytics.window.seconds", 60) * 1000);
+    }
+
+    public void onTrade(int symbol, long time, double price, long quantity) {
+        if (symbol < 0)
+            return;
+        analytics(symbol).onTrade(time, price, quantity);
+        version.incrementAndGet();
+    }
+
+    public void onQuote(int symbol, long time, double bidPrice, long bidQuantity, double askPrice, long askQuantity) {
+        if (symbol < 0)
+            return;
+        analytics(symbol).onQuote(time, bidPrice, bidQuantity, askPrice, askQuantity);
+        version.incrementAndGet();
+    }
+
+    // null for a symbol that has neither traded nor been quoted
+    public SymbolAnalytics get(int symbol) {
+        SymbolAnalytics[] symbols = this.symbols;
+        return symbol >= 0 && symbol < symbols.length ? symbols[symbol] : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // bumped by every trade or quote of any symbol
+    public long getVersion() {
+        return version.get();
+    }
+
+    private SymbolAnalytics analytics(int symbol) {
+        SymbolAnalytics analytics = get(symbol);
+        return analytics != null ? analytics : add(symbol);
+    }
+
+    // at most once per symbol. A reader racing this may still see null for the symbol and come here for it; a
+    // grown array holds every existing symbol before it is published, and SymbolAnalytics locks its own state
+    private synchronized SymbolAnalytics add(int symbol) {
+        SymbolAnalytics[] symbols = this.symbols;
+        if (symbol < symbols.length && symbols[symbol] != null)
+            return symbols[symbol];
+        if (symbol >= symbols.length) {
+            symbols = Arrays.copyOf(symbols, Math.max(symbol + 1, symbols.length * 2));
+            this.symbols = symbols;
+        }
+        SymbolAnalytics analytics = new SymbolAnalytics(windowMillis);
+        symbols[symbol] = analytics;
+        size++;
+        return analytics;
+    }
+}
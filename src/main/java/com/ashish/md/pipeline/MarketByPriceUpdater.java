@@ -0,0 +1,121 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.MarketByPrice;
+import com.ashish.md.broker.EMSBroker;
+import com.ashish.md.broker.KafkaBroker;
+import com.ashish.md.codec.AvroDeserializer;
+import com.ashish.md.codec.AvroRecordDecoder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import javax.jms.Message;
+import java.util.Arrays;
+
+public class MarketByPriceUpdater extends Thread {
+    // with a snapshot topic, a blocking receive on the deltas waits at most this long before snapshots are checked
+    private static final long SNAPSHOT_CHECK_MILLIS = 10;
+
+    private MarketDepthContainer marketDepthContainer;
+    private KafkaConsumer<String, MarketByPrice> kafkaConsumer;
+    private AvroRecordDecoder<MarketByPrice> decoder;
+    private WaitStrategy waitStrategy;
+    private EMSBroker emsBroker;
+    // delta feeds only, when a snapshot topic is configured: its full books resync books that lost deltas
+    private EMSBroker snapshotBroker;
+    private String snapshotTopic;
+    // the snapshot topic's own -D<topic>.wire
+    private AvroRecordDecoder<MarketByPrice> snapshotDecoder;
+    private boolean kafka;
+
+    public MarketByPriceUpdater(MarketDepthContainer marketDepthContainer, boolean kafka) {
+        this.marketDepthContainer = marketDepthContainer;
+        this.kafka = kafka;
+        this.decoder = AvroRecordDecoder.forTopic(MarketByPrice.class, MarketByPrice.getClassSchema(), "exsim.nse.marketbyprice");
+        this.waitStrategy = WaitStrategy.forStream("exsim.nse.marketbyprice");
+        this.snapshotTopic = marketDepthContainer.isDelta() ? marketDepthContainer.getSnapshotTopic() : null;
+        if (snapshotTopic != null)
+            this.snapshotDecoder = AvroRecordDecoder.forTopic(MarketByPrice.class, MarketByPrice.getClassSchema(), snapshotTopic);
+        try {
+            if (!kafka) {
+                emsBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
+                emsBroker.createConsumer("exsim.nse.marketbyprice", true);
+                if (snapshotTopic != null) {
+                    snapshotBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
+                    snapshotBroker.createConsumer(snapshotTopic, true);
+                }
+            } else {
+                AvroDeserializer<MarketByPrice> deltas = new AvroDeserializer<>(decoder);
+                Deserializer<MarketByPrice> deserializer = deltas;
+                if (snapshotTopic != null) {
+                    AvroDeserializer<MarketByPrice> snapshots = new AvroDeserializer<>(snapshotDecoder);
+                    deserializer = (topic, data) -> snapshotTopic.equals(topic) ? snapshots.deserialize(topic, data) : deltas.deserialize(topic, data);
+                }
+                this.kafkaConsumer = new KafkaBroker("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095").createConsumer(null, deserializer);
+                this.kafkaConsumer.subscribe(snapshotTopic != null ? Arrays.asList("exsim.nse.marketbyprice", snapshotTopic)
+                        : Arrays.asList("exsim.nse.marketbyprice"));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void run() {
+        if (kafka ? kafkaConsumer == null : emsBroker == null || emsBroker.consumer() == null) {
+            System.err.println("No consumer for exsim.nse.marketbyprice, updater stopped");
+            return;
+        }
+        int idleCount = 0;
+        int failures = 0;
+        while (true) {
+            int received = 0;
+            try {
+                if (!kafka) {
+                    // checked on every pass, so a stale book resyncs while the deltas are quiet too
+                    Message snapshot = snapshotBroker != null ? snapshotBroker.consumer().receiveNoWait() : null;
+                    if (snapshot != null) {
+                        received++;
+                        marketDepthContainer.setSnapshot(null, snapshotDecoder.decode(snapshot));
+                    }
+                    Message msg = snapshotBroker != null ? waitStrategy.receive(emsBroker.consumer(), SNAPSHOT_CHECK_MILLIS)
+                            : waitStrategy.receive(emsBroker.consumer());
+                    if (msg != null) {
+                        received++;
+                        MarketByPrice marketByPrice = decoder.decode(msg);
+                        marketDepthContainer.setMarketByPrice(null, marketByPrice);
+                    }
+                } else {
+                    ConsumerRecords<String, MarketByPrice> records = kafkaConsumer.poll(waitStrategy.pollTimeout());
+                    received = records.count();
+                    for (ConsumerRecord<String, MarketByPrice> record : records) {
+                        String symbol = record.key();
+                        MarketByPrice marketByPrice = record.value();
+                        if (marketByPrice == null)
+                            continue;
+                        if (record.topic().equals(snapshotTopic))
+                            marketDepthContainer.setSnapshot(symbol, marketByPrice);
+                        else
+                            marketDepthContainer.setMarketByPrice(symbol, marketByPrice);
+
+                    }
+                }
+
+            } catch (IllegalStateException | javax.jms.IllegalStateException e) {
+                // the consumer was closed under us, nothing more can arrive on it
+                e.printStackTrace();
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+                waitStrategy.failed(++failures);
+                continue;
+            }
+            failures = 0;
+            if (received > 0)
+                idleCount = 0;
+            else
+                waitStrategy.idle(++idleCount);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.MarketByPrice;
+
+public class MarketDepthContainer {
+    // -Dexsim.nse.marketbyprice.book=delta: each message carries level changes (size 0 deletes) instead of the whole book
+    private final boolean delta = "delta".equals(System.getProperty("exsim.nse.marketbyprice.book"));
+    // -Dexsim.nse.marketbyprice.snapshots=<topic>: full books published alongside the deltas; each one resyncs its
+    // symbol's book after deltas were dropped. Unset, a book that lost deltas stays marked stale
+    private final String snapshotTopic = System.getProperty("exsim.nse.marketbyprice.snapshots");
+    // snapshots: latest MarketByPrice per symbol: written by a single updater thread, drained by the render loop
+    private final ConflationStore<MarketByPrice> marketByPrices = new ConflationStore<>(ConflationStore.defaultCapacity());
+    // deltas cannot be conflated, each one is queued: single producer (updater thread), single consumer (render loop)
+    private final EventRingBuffer<DepthUpdate> deltas = new EventRingBuffer<>(delta ? EventRingBuffer.defaultCapacity() : 2);
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public ConflationStore<MarketByPrice> getMarketByPrices() {
+        return marketByPrices;
+    }
+
+    public EventRingBuffer<DepthUpdate> getDeltas() {
+        return deltas;
+    }
+
+    // null when no snapshot topic was configured
+    public String getSnapshotTopic() {
+        return snapshotTopic;
+    }
+
+    // true when something is waiting to be applied
+    public boolean hasUpdates() {
+        return delta ? deltas.size() > 0 : marketByPrices.dirtyCount() > 0;
+    }
+
+    public void setMarketByPrice(String symbol, MarketByPrice marketByPrice) {
+        if (marketByPrice == null)
+            return;
+        if (delta)
+            deltas.offer(new DepthUpdate(marketByPrice, false));
+        else
+            marketByPrices.publish(SymbolDictionary.SYMBOLS.id(symbol != null ? symbol : marketByPrice.getSymbol()), marketByPrice);
+    }
+
+    // a full book from the snapshot topic; on a snapshot feed it is just another update
+    public void setSnapshot(String symbol, MarketByPrice snapshot) {
+        if (snapshot == null)
+            return;
+        if (delta)
+            deltas.offer(new DepthUpdate(snapshot, true));
+        else
+            setMarketByPrice(symbol, snapshot);
+    }
+}
@@ -0,0 +1,26 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.MarketPrice;
+
+public class MarketPriceContainer {
+    // latest MarketPrice per symbol: written by a single updater thread, drained by the render loop
+    private final ConflationStore<MarketPrice> marketPrices = new ConflationStore<>(ConflationStore.defaultCapacity());
+    // checked on every update before conflation, so no tick escapes a rule
+    private final RuleBook<MarketPrice> alerts;
+
+    public MarketPriceContainer(RuleBook<MarketPrice> alerts) {
+        this.alerts = alerts;
+    }
+
+    public ConflationStore<MarketPrice> getMarketPrices() {
+        return marketPrices;
+    }
+
+    public void setMarketPrice(String symbol, MarketPrice marketPrice) {
+        if (marketPrice == null)
+            return;
+        int id = SymbolDictionary.SYMBOLS.id(symbol != null ? symbol : marketPrice.getSymbol());
+        alerts.evaluate(id, marketPrice);
+        marketPrices.publish(id, marketPrice);
+    }
+}
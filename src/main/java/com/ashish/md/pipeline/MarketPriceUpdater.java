@@ -0,0 +1,88 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.MarketPrice;
+import com.ashish.md.broker.EMSBroker;
+import com.ashish.md.broker.KafkaBroker;
+import com.ashish.md.codec.AvroDeserializer;
+import com.ashish.md.codec.AvroRecordDecoder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+
+import javax.jms.Message;
+import java.util.Arrays;
+
+public class MarketPriceUpdater extends Thread {
+    private MarketPriceContainer pricesContainer;
+    private KafkaConsumer<String, MarketPrice> kafkaConsumer;
+    private AvroRecordDecoder<MarketPrice> decoder;
+    private WaitStrategy waitStrategy;
+    private EMSBroker emsBroker;
+    private boolean kafka;
+
+    public MarketPriceUpdater(MarketPriceContainer pricesContainer, boolean kafka) {
+        this.pricesContainer = pricesContainer;
+        this.kafka = kafka;
+        this.decoder = AvroRecordDecoder.forTopic(MarketPrice.class, MarketPrice.getClassSchema(), "exsim.nse.marketprice");
+        this.waitStrategy = WaitStrategy.forStream("exsim.nse.marketprice");
+        try {
+            if (!kafka) {
+                emsBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
+                emsBroker.createConsumer("exsim.nse.marketprice", true);
+            } else {
+                this.kafkaConsumer = new KafkaBroker("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095").createConsumer(null, new AvroDeserializer<>(decoder));
+                this.kafkaConsumer.subscribe(Arrays.asList("exsim.nse.marketprice"));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void run() {
+        if (kafka ? kafkaConsumer == null : emsBroker == null || emsBroker.consumer() == null) {
+            System.err.println("No consumer for exsim.nse.marketprice, updater stopped");
+            return;
+        }
+        int idleCount = 0;
+        int failures = 0;
+        while (true) {
+            int received = 0;
+            try {
+                if (!kafka) {
+                    Message msg = waitStrategy.receive(emsBroker.consumer());
+                    if (msg != null) {
+                        received++;
+                        MarketPrice marketPrice = decoder.decode(msg);
+                        pricesContainer.setMarketPrice(null, marketPrice);
+                    }
+                } else {
+                    ConsumerRecords<String, MarketPrice> records = kafkaConsumer.poll(waitStrategy.pollTimeout());
+                    received = records.count();
+                    for (ConsumerRecord<String, MarketPrice> record : records) {
+                        String symbol = record.key();
+                        {
+                            MarketPrice marketPrice = record.value();
+                            if (marketPrice != null)
+                                pricesContainer.setMarketPrice(symbol, marketPrice);
+                        }
+                    }
+                }
+
+            } catch (IllegalStateException | javax.jms.IllegalStateException e) {
+                // the consumer was closed under us, nothing more can arrive on it
+                e.printStackTrace();
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+                waitStrategy.failed(++failures);
+                continue;
+            }
+            failures = 0;
+            if (received > 0)
+                idleCount = 0;
+            else
+                waitStrategy.idle(++idleCount);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.Quote;
+
+public class MarketQuoteContainer {
+    // every update for the blotter: single producer (updater thread), single consumer (render loop)
+    private final EventRingBuffer<Quote> quotes = new EventRingBuffer<>(EventRingBuffer.defaultCapacity());
+    // bid and ask per symbol for the trade classifier, written on arrival by the same updater thread
+    private final PrevailingQuotes prevailingQuotes;
+    // rolling analytics, fed here on arrival so they see every quote whatever the blotter keeps up with
+    private final MarketAnalytics analytics;
+    private final RuleBook<Quote> alerts;
+    // latest update, read by the render loop for the window title
+    private volatile Quote quote;
+
+    public MarketQuoteContainer(PrevailingQuotes prevailingQuotes, MarketAnalytics analytics, RuleBook<Quote> alerts) {
+        this.prevailingQuotes = prevailingQuotes;
+        this.analytics = analytics;
+        this.alerts = alerts;
+        this.quote = new Quote();
+    }
+
+    public Quote getQuote() {
+        return quote;
+    }
+
+    public void setQuote(Quote quote) {
+        if (quote == null)
+            return;
+        int symbol = SymbolDictionary.SYMBOLS.id(quote.getSymbol());
+        if (symbol >= 0 && quote.getTime() != null && quote.getBidprice() != null && quote.getAskprice() != null)
+            prevailingQuotes.publish(symbol, quote.getTime(), quote.getBidprice(), quote.getAskprice());
+        if (symbol >= 0 && quote.getExchange() != null && quote.getTime() != null && quote.getBidprice() != null && quote.getBidsize() != null
+                && quote.getAskprice() != null && quote.getAsksize() != null)
+            analytics.onQuote(symbol, quote.getTime(), quote.getBidprice(), quote.getBidsize(), quote.getAskprice(), quote.getAsksize());
+        alerts.evaluate(symbol, quote);
+        quotes.offer(quote);
+        this.quote = quote;
+    }
+
+    public EventRingBuffer<Quote> getQuotes() {
+        return quotes;
+    }
+}
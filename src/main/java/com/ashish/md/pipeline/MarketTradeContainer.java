@@ -0,0 +1,57 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.Trade;
+
+import java.util.function.Consumer;
+
+public class MarketTradeContainer {
+    // every update for the blotter, classified against the prevailing quote on arrival:
+    // single producer (updater thread), single consumer (render loop)
+    private final EventRingBuffer<ClassifiedTrade> trades = new EventRingBuffer<>(EventRingBuffer.defaultCapacity());
+    private final Consumer<ClassifiedTrade> publish = trades::offer;
+    // holds each trade until the quote feed reaches its time
+    private final TradeClassifier classifier;
+    // rolling analytics and candles, fed here on arrival so they see every trade whatever the blotter keeps up with
+    private final MarketAnalytics analytics;
+    private final CandleAggregator candles;
+    // latest update, read by the render loop for the window title
+    private volatile Trade trade;
+
+    // trades classified against the quotes a MarketQuoteContainer publishes into quotes
+    public MarketTradeContainer(PrevailingQuotes quotes, MarketAnalytics analytics, CandleAggregator candles) {
+        this.classifier = new TradeClassifier(quotes, TradeClassifier.defaultHoldMillis());
+        this.analytics = analytics;
+        this.candles = candles;
+        this.trade = new Trade();
+    }
+
+    public Trade getTrade() {
+        return trade;
+    }
+
+    public void setTrade(Trade trade) {
+        if (trade == null)
+            return;
+        int symbol = SymbolDictionary.SYMBOLS.id(trade.getSymbol());
+        if (symbol >= 0 && trade.getExchange() != null && trade.getTime() != null && trade.getPrice() != null && trade.getSize() != null) {
+            analytics.onTrade(symbol, trade.getTime(), trade.getPrice(), trade.getSize());
+            candles.onTrade(symbol, trade.getTime(), trade.getPrice(), trade.getSize());
+        }
+        classifier.offer(symbol, trade, System.currentTimeMillis(), publish);
+        this.trade = trade;
+    }
+
+    // passes on the held trades whose quotes have arrived or whose hold ran out; the updater calls it after every
+    // poll, so held trades leave even while no new trade arrives
+    public void releaseHeld() {
+        classifier.release(System.currentTimeMillis(), publish);
+    }
+
+    public TradeClassifier getClassifier() {
+        return classifier;
+    }
+
+    public EventRingBuffer<ClassifiedTrade> getTrades() {
+        return trades;
+    }
+}
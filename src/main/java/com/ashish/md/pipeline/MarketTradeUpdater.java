@@ -0,0 +1,89 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.Trade;
+import com.ashish.md.broker.EMSBroker;
+import com.ashish.md.broker.KafkaBroker;
+import com.ashish.md.codec.AvroDeserializer;
+import com.ashish.md.codec.AvroRecordDecoder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+
+import javax.jms.Message;
+import java.util.Arrays;
+
+public class MarketTradeUpdater extends Thread {
+    private MarketTradeContainer tradeContainer;
+    private KafkaConsumer<String, Trade> kafkaConsumer;
+    private AvroRecordDecoder<Trade> decoder;
+    private WaitStrategy waitStrategy;
+    private EMSBroker emsBroker;
+    private boolean kafka;
+
+    public MarketTradeUpdater(MarketTradeContainer tradeContainer, boolean kafka) {
+        this.tradeContainer = tradeContainer;
+        this.kafka = kafka;
+        this.decoder = AvroRecordDecoder.forTopic(Trade.class, Trade.getClassSchema(), "exsim.nse.trades");
+        this.waitStrategy = WaitStrategy.forStream("exsim.nse.trades");
+        try {
+            if (!kafka) {
+                emsBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
+                emsBroker.createConsumer("exsim.nse.trades", true);
+            } else {
+                this.kafkaConsumer = new KafkaBroker("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095").createConsumer(null, new AvroDeserializer<>(decoder));
+                this.kafkaConsumer.subscribe(Arrays.asList("exsim.nse.trades"));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void run() {
+        if (kafka ? kafkaConsumer == null : emsBroker == null || emsBroker.consumer() == null) {
+            System.err.println("No consumer for exsim.nse.trades, updater stopped");
+            return;
+        }
+        int idleCount = 0;
+        int failures = 0;
+        while (true) {
+            int received = 0;
+            try {
+                if (!kafka) {
+                    Message msg = waitStrategy.receive(emsBroker.consumer());
+                    if (msg != null) {
+                        received++;
+                        Trade trade = decoder.decode(msg);
+                        if (trade != null)
+                            tradeContainer.setTrade(trade);
+                    }
+                } else {
+                    ConsumerRecords<String, Trade> records = kafkaConsumer.poll(waitStrategy.pollTimeout());
+                    received = records.count();
+                    for (ConsumerRecord<String, Trade> record : records) {
+                        String symbol = record.key();
+                        {
+                            Trade trade = record.value();
+                            if (trade != null)
+                                tradeContainer.setTrade(trade);
+                        }
+                    }
+                }
+            } catch (IllegalStateException | javax.jms.IllegalStateException e) {
+                // the consumer was closed under us, nothing more can arrive on it
+                e.printStackTrace();
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+                waitStrategy.failed(++failures);
+                continue;
+            }
+            tradeContainer.releaseHeld();
+            failures = 0;
+            if (received > 0)
+                idleCount = 0;
+            else
+                waitStrategy.idle(++idleCount);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.md.broker.KafkaBroker;
+import com.ashish.md.codec.AvroDeserializer;
+import com.ashish.md.codec.TopicRoutingDeserializer;
+import org.apache.avro.Schema;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+public class MultiplexedUpdater extends Thread {
+    private final String kafkaServersUrl;
+    private final TopicRoutingDeserializer deserializer = new TopicRoutingDeserializer();
+    private final Map<String, BiConsumer<String, Object>> routes = new HashMap<>();
+    private final List<Runnable> afterPoll = new ArrayList<>();
+    private KafkaConsumer<String, Object> kafkaConsumer;
+    private WaitStrategy waitStrategy;
+
+    public MultiplexedUpdater(String kafkaServersUrl) {
+        this.kafkaServersUrl = kafkaServersUrl;
+        this.waitStrategy = WaitStrategy.forStream("md.ingest");
+    }
+
+    // register every topic before start(), the consumer subscribes once to all of them
+    public <T> void route(String topic, Class<T> type, Schema schema, BiConsumer<String, T> sink) {
+        deserializer.register(topic, AvroDeserializer.forTopic(type, schema, topic));
+        routes.put(topic, (symbol, value) -> sink.accept(symbol, type.cast(value)));
+    }
+
+    // register before start(); runs on this thread after every poll, empty ones included
+    public void afterPoll(Runnable task) {
+        afterPoll.add(task);
+    }
+
+    @Override
+    public void run() {
+        try {
+            kafkaConsumer = new KafkaBroker(kafkaServersUrl).createConsumer(null, deserializer);
+            kafkaConsumer.subscribe(routes.keySet());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+        int idleCount = 0;
+        int failures = 0;
+        while (true) {
+            int received = 0;
+            try {
+                ConsumerRecords<String, Object> records = kafkaConsumer.poll(waitStrategy.pollTimeout());
+                received = records.count();
+                for (ConsumerRecord<String, Object> record : records) {
+                    BiConsumer<String, Object> route = routes.get(record.topic());
+                    if (route != null && record.value() != null)
+                        route.accept(record.key(), record.value());
+                }
+            } catch (IllegalStateException e) {
+                // the consumer was closed under us, nothing more can arrive on it
+                e.printStackTrace();
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+                waitStrategy.failed(++failures);
+                continue;
+            }
+            for (Runnable task : afterPoll)
+                task.run();
+            failures = 0;
+            if (received > 0)
+                idleCount = 0;
+            else
+                waitStrategy.idle(++idleCount);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.AskDepth;
+import com.ashish.marketdata.avro.BidDepth;
+import com.ashish.marketdata.avro.MarketByPrice;
+
+import java.util.Arrays;
+import java.util.List;
+
+// One symbol's book, each side kept best price first in parallel primitive arrays (no object per level).
+// Takes either full snapshots or deltas: in a delta, every BidDepth/AskDepth is one level change keyed by price,
+// size 0 deletes the level, a known price is modified and a new price is inserted in order. Single-threaded.
+public class OrderBook {
+
+    private final Side bids = new Side(true);
+    private final Side asks = new Side(false);
+    private long version;
+    // set when deltas were lost and this book may have missed some, cleared by the next snapshot
+    private boolean stale;
+
+    public void applySnapshot(MarketByPrice book) {
+        bids.clear();
+        asks.clear();
+        List<BidDepth> bidList = book.getBidList();
+        if (bidList != null) {
+            for (BidDepth level : bidList)
+                bids.apply(level.getBidPrice(), level.getBidSize(), level.getBidOrders());
+        }
+        List<AskDepth> askList = book.getAskList();
+        if (askList != null) {
+            for (AskDepth level : askList)
+                asks.apply(level.getAskPrice(), level.getAskSize(), level.getAskOrders());
+        }
+        stale = false;
+        version++;
+    }
+
+    public void applyDelta(MarketByPrice delta) {
+        List<BidDepth> bidList = delta.getBidList();
+        if (bidList != null) {
+            for (BidDepth level : bidList)
+                bids.apply(level.getBidPrice(), level.getBidSize(), level.getBidOrders());
+        }
+        List<AskDepth> askList = delta.getAskList();
+        if (askList != null) {
+            for (AskDepth level : askList)
+                asks.apply(level.getAskPrice(), level.getAskSize(), level.getAskOrders());
+        }
+        version++;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void markStale() {
+        if (!stale) {
+            stale = true;
+            version++;
+        }
+    }
+
+    // bumped by every snapshot or delta, and when the book turns stale
+    public long getVersion() {
+        return version;
+    }
+
+    // levels are addressed 0 (best) to levels() - 1
+    public int bidLevels() {
+        return bids.count;
+    }
+
+    public double bidPrice(int level) {
+        return bids.price[level];
+    }
+
+    public long bidSize(int level) {
+        return bids.size[level];
+    }
+
+    public long bidOrders(int level) {
+        return bids.orders[level];
+    }
+
+    public int askLevels() {
+        return asks.count;
+    }
+
+    public double askPrice(int level) {
+        return asks.price[level];
+    }
+
+    public long askSize(int level) {
+        return asks.size[level];
+    }
+
+    public long askOrders(int level) {
+        return asks.orders[level];
+    }
+
+    private static final class Side {
+        // bids best-first is descending, asks ascending
+        final boolean descending;
+        double[] price = new double[16];
+        long[] size = new long[16];
+        long[] orders = new long[16];
+        int count;
+
+        Side(boolean descending) {
+            this.descending = descending;
+        }
+
+        void clear() {
+            count = 0;
+        }
+
+        // O(log n) to find the level, plus a shift of the levels behind it on insert or delete
+        void apply(double levelPrice, long levelSize, long levelOrders) {
+            int level = find(levelPrice);
+            if (level >= 0) {
+                if (levelSize == 0) {
+                    System.arraycopy(price, level + 1, price, level, count - level - 1);
+                    System.arraycopy(size, level + 1, size, level, count - level - 1);
+                    System.arraycopy(orders, level + 1, orders, level, count - level - 1);
+                    count--;
+                } else {
+                    size[level] = levelSize;
+                    orders[level] = levelOrders;
+                }
+                return;
+            }
+            if (levelSize == 0)
+                return;
+            int insertAt = -(level + 1);
+            if (count == price.length) {
+                price = Arrays.copyOf(price, count * 2);
+                size = Arrays.copyOf(size, count * 2);
+                orders = Arrays.copyOf(orders, count * 2);
+            }
+            System.arraycopy(price, insertAt, price, insertAt + 1, count - insertAt);
+            System.arraycopy(size, insertAt, size, insertAt + 1, count - insertAt);
+            System.arraycopy(orders, insertAt, orders, insertAt + 1, count - insertAt);
+            price[insertAt] = levelPrice;
+            size[insertAt] = levelSize;
+            orders[insertAt] = levelOrders;
+            count++;
+        }
+
+        // index of the level at this price, or -(insertion point + 1) like Arrays.binarySearch
+        int find(double levelPrice) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int compared = Double.compare(price[mid], levelPrice);
+                if (descending)
+                    compared = -compared;
+                if (compared < 0)
+                    lo = mid + 1;
+                else if (compared > 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+            return -(lo + 1);
+        }
+    }
+}
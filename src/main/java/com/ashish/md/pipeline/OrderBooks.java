@@ -0,0 +1,87 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.MarketByPrice;
+
+import java.util.Arrays;
+
+// Every symbol's OrderBook, fed from a MarketDepthContainer by whichever thread renders or reports depth.
+// Snapshot feeds are drained conflated, so only each symbol's latest book is applied; delta feeds are drained
+// in full and in order, since every delta matters. A dropped delta cannot be traced to its symbol, so once the ring
+// drops any every book is marked stale, including books first seen afterwards, until a snapshot from the snapshot
+// topic replaces it. Books are indexed by SymbolDictionary.SYMBOLS id. Single-threaded.
+public class OrderBooks {
+
+    private OrderBook[] books = new OrderBook[256];
+    private int size;
+    private int lastSymbol = -1;
+    // the ring's drop count when last drained; books created once it is non-zero start stale
+    private long dropped;
+
+    // applies everything waiting in the container; returns how many messages were applied
+    public int drain(MarketDepthContainer container) {
+        if (container.isDelta()) {
+            long nowDropped = container.getDeltas().getDropped();
+            if (nowDropped != dropped) {
+                dropped = nowDropped;
+                for (OrderBook book : books) {
+                    if (book != null)
+                        book.markStale();
+                }
+            }
+            return container.getDeltas().drain(this::apply);
+        }
+        return container.getMarketByPrices().drainDirty((symbol, snapshot) -> book(symbol).applySnapshot(snapshot));
+    }
+
+    public OrderBook get(String symbol) {
+        int id = SymbolDictionary.SYMBOLS.find(symbol);
+        return id >= 0 && id < books.length ? books[id] : null;
+    }
+
+    // the symbol whose book changed last
+    public String getLastSymbol() {
+        return SymbolDictionary.SYMBOLS.name(lastSymbol);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int staleCount() {
+        int stale = 0;
+        for (OrderBook book : books) {
+            if (book != null && book.isStale())
+                stale++;
+        }
+        return stale;
+    }
+
+    private void apply(DepthUpdate update) {
+        MarketByPrice message = update.getBook();
+        OrderBook book = book(SymbolDictionary.SYMBOLS.id(message.getSymbol()));
+        if (book == null)
+            return;
+        if (update.isSnapshot())
+            book.applySnapshot(message);
+        else
+            book.applyDelta(message);
+    }
+
+    // null for a message without a symbol
+    private OrderBook book(int symbol) {
+        if (symbol < 0)
+            return null;
+        if (symbol >= books.length)
+            books = Arrays.copyOf(books, Math.max(symbol + 1, books.length * 2));
+        OrderBook book = books[symbol];
+        if (book == null) {
+            book = new OrderBook();
+            if (dropped > 0)
+                book.markStale();
+            books[symbol] = book;
+            size++;
+        }
+        lastSymbol = symbol;
+        return book;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.Order;
+
+public class OrderExecutionsContainer {
+    // every update for the blotter: single producer (updater thread), single consumer (render loop)
+    private final EventRingBuffer<Order> orders = new EventRingBuffer<>(EventRingBuffer.defaultCapacity());
+    // latest update, read by the render loop for the window title
+    private volatile Order order;
+    private final RuleBook<Order> alerts;
+
+    public OrderExecutionsContainer(RuleBook<Order> alerts) {
+        this.alerts = alerts;
+        this.order = new Order();
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(Order order) {
+        if (order == null)
+            return;
+        alerts.evaluate(SymbolDictionary.SYMBOLS.id(order.getSymbol()), order);
+        orders.offer(order);
+        this.order = order;
+    }
+
+    public EventRingBuffer<Order> getOrders() {
+        return orders;
+    }
+}
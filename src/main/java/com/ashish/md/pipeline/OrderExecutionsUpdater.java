@@ -0,0 +1,88 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.Order;
+import com.ashish.md.broker.EMSBroker;
+import com.ashish.md.broker.KafkaBroker;
+import com.ashish.md.codec.AvroDeserializer;
+import com.ashish.md.codec.AvroRecordDecoder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+
+import javax.jms.Message;
+import java.util.Arrays;
+
+public class OrderExecutionsUpdater extends Thread {
+    private OrderExecutionsContainer orderExecutionsContainer;
+    private KafkaConsumer<String, Order> kafkaConsumer;
+    private AvroRecordDecoder<Order> decoder;
+    private WaitStrategy waitStrategy;
+    private EMSBroker emsBroker;
+    private boolean kafka;
+
+    public OrderExecutionsUpdater(OrderExecutionsContainer tradeContainer, boolean kafka) {
+        this.orderExecutionsContainer = tradeContainer;
+        this.kafka = kafka;
+        this.decoder = AvroRecordDecoder.forTopic(Order.class, Order.getClassSchema(), "exsim.nse.executions");
+        this.waitStrategy = WaitStrategy.forStream("exsim.nse.executions");
+        try {
+            if (!kafka) {
+                emsBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
+                emsBroker.createConsumer("exsim.nse.executions", true);
+            } else {
+                this.kafkaConsumer = new KafkaBroker("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095").createConsumer(null, new AvroDeserializer<>(decoder));
+                this.kafkaConsumer.subscribe(Arrays.asList("exsim.nse.executions"));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void run() {
+        if (kafka ? kafkaConsumer == null : emsBroker == null || emsBroker.consumer() == null) {
+            System.err.println("No consumer for exsim.nse.executions, updater stopped");
+            return;
+        }
+        int idleCount = 0;
+        int failures = 0;
+        while (true) {
+            int received = 0;
+            try {
+                if (!kafka) {
+                    Message msg = waitStrategy.receive(emsBroker.consumer());
+                    if (msg != null) {
+                        received++;
+                        Order order = decoder.decode(msg);
+                        if (order != null)
+                            orderExecutionsContainer.setOrder(order);
+                    }
+                } else {
+                    ConsumerRecords<String, Order> records = kafkaConsumer.poll(waitStrategy.pollTimeout());
+                    received = records.count();
+                    for (ConsumerRecord<String, Order> record : records) {
+                        String symbol = record.key();
+                        {
+                            Order order = record.value();
+                            if (order != null)
+                                orderExecutionsContainer.setOrder(order);
+                        }
+                    }
+                }
+            } catch (IllegalStateException | javax.jms.IllegalStateException e) {
+                // the consumer was closed under us, nothing more can arrive on it
+                e.printStackTrace();
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+                waitStrategy.failed(++failures);
+                continue;
+            }
+            failures = 0;
+            if (received > 0)
+                idleCount = 0;
+            else
+                waitStrategy.idle(++idleCount);
+        }
+    }
+}
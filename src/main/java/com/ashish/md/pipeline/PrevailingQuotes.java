@@ -0,0 +1,100 @@
+package com.ashish.md.pipeline;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// The last HISTORY bids and asks of every symbol, written by the quote updater and read by the trade updater
+// without locks. Each symbol id (SymbolDictionary.SYMBOLS) owns a slot of one AtomicLongArray guarded by a
+// sequence number (a seqlock): the writer makes it odd, writes and makes it even again; a reader retries until it
+// read the same even sequence before and after. Keeping a few quotes instead of one lets a trade find the quote that stood at its own time
+// even when the quote feed is slightly ahead of the trade feed; the watermark, the latest quote time published, tells
+// the trade side when the quote feed has caught up with a trade. One writer, any number of readers.
+public class PrevailingQuotes {
+
+    static final int HISTORY = 4;
+    // per slot: sequence, quotes written so far, then HISTORY x (time, bid bits, ask bits)
+    private static final int STRIDE = 2 + 3 * HISTORY;
+
+    private final int capacity;
+    private final AtomicLongArray quotes;
+    private volatile long dropped;
+    // written after the quote it came with, so a reader that sees it also sees the quote
+    private volatile long watermark = Long.MIN_VALUE;
+
+    public PrevailingQuotes(int capacity) {
+        this.capacity = capacity;
+        this.quotes = new AtomicLongArray(capacity * STRIDE);
+    }
+
+    // sized like the conflation stores, from -Dmd.conflation.symbols
+    public static PrevailingQuotes fromSystemProperties() {
+        return new PrevailingQuotes(ConflationStore.defaultCapacity());
+    }
+
+    // writer thread only; false when the symbol id is past the capacity
+    public boolean publish(int symbol, long time, double bid, double ask) {
+        if (symbol < 0 || symbol >= capacity) {
+            dropped++;
+            return false;
+        }
+        int base = symbol * STRIDE;
+        long sequence = quotes.get(base);
+        long written = quotes.get(base + 1);
+        int entry = base + 2 + 3 * (int) (written % HISTORY);
+        quotes.set(base, sequence + 1);
+        quotes.set(entry, time);
+        quotes.set(entry + 1, Double.doubleToRawLongBits(bid));
+        quotes.set(entry + 2, Double.doubleToRawLongBits(ask));
+        quotes.set(base + 1, written + 1);
+        quotes.set(base, sequence + 2);
+        if (time > watermark)
+            watermark = time;
+        return true;
+    }
+
+    // the latest quote time published for any symbol, Long.MIN_VALUE before the first quote
+    public long getWatermark() {
+        return watermark;
+    }
+
+    // copies the newest quote stamped at or before time into into[0] (bid) and into[1] (ask); false if there is none
+    public boolean prevailing(int symbol, long time, double[] into) {
+        if (symbol < 0 || symbol >= capacity)
+            return false;
+        int base = symbol * STRIDE;
+        int spins = 0;
+        while (true) {
+            long sequence = quotes.get(base);
+            if ((sequence & 1) != 0) {
+                // a write lasts a few stores, so retry at once; yield now and then in case the writer was descheduled
+                if (++spins % 100 == 0)
+                    Thread.yield();
+                continue;
+            }
+            long written = quotes.get(base + 1);
+            long bestTime = Long.MIN_VALUE;
+            long bid = 0;
+            long ask = 0;
+            for (int i = 0; i < Math.min(written, HISTORY); i++) {
+                int entry = base + 2 + 3 * i;
+                long quoteTime = quotes.get(entry);
+                if (quoteTime <= time && quoteTime >= bestTime) {
+                    bestTime = quoteTime;
+                    bid = quotes.get(entry + 1);
+                    ask = quotes.get(entry + 2);
+                }
+            }
+            if (quotes.get(base) != sequence)
+                continue;
+            if (bestTime == Long.MIN_VALUE)
+                return false;
+            into[0] = Double.longBitsToDouble(bid);
+            into[1] = Double.longBitsToDouble(ask);
+            return true;
+        }
+    }
+
+    // quotes for symbols that did not fit
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,113 @@
+package com.ashish.md.pipeline;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// The compiled alert rules of one stream, indexed by SymbolDictionary.SYMBOLS id: an update only runs the rules
+// written for its own symbol and the wildcard rules, so thousands of rules on other symbols cost nothing.
+// Rules on state (prices, quotes) fire when their condition becomes true and re-arm once it is false again;
+// rules on events (orders) fire on every matching event. Each rule sees the update and the symbol's previous
+// update, for .change fields. Fired alerts queue on a ring for the render loop.
+// Evaluated on the stream's updater thread only.
+public class RuleBook<R> {
+
+    // current update, the same symbol's previous update (null for its first)
+    interface Condition<R> {
+        boolean test(R current, R previous);
+    }
+
+    interface Field<R> {
+        double get(R current, R previous);
+    }
+
+    static final class Rule<R> {
+        final String name;
+        final int symbol;
+        final Condition<R> condition;
+        // reported with the alert, null for text conditions
+        final Field<R> value;
+        // symbols whose condition is currently true, for edge-triggered books
+        final BitSet active = new BitSet();
+
+        Rule(String name, int symbol, Condition<R> condition, Field<R> value) {
+            this.name = name;
+            this.symbol = symbol;
+            this.condition = condition;
+            this.value = value;
+        }
+    }
+
+    private final boolean edgeTriggered;
+    private Rule<R>[][] bySymbol = noSymbols();
+    private Rule<R>[] wildcard = noRules();
+    private Object[] previous = new Object[0];
+    private int size;
+    private final EventRingBuffer<FiredAlert> alerts = new EventRingBuffer<>(EventRingBuffer.defaultCapacity());
+
+    RuleBook(boolean edgeTriggered) {
+        this.edgeTriggered = edgeTriggered;
+    }
+
+    void add(Rule<R> rule) {
+        if (rule.symbol < 0) {
+            wildcard = append(wildcard, rule);
+        } else {
+            if (rule.symbol >= bySymbol.length)
+                bySymbol = Arrays.copyOf(bySymbol, rule.symbol + 1);
+            bySymbol[rule.symbol] = append(bySymbol[rule.symbol] != null ? bySymbol[rule.symbol] : noRules(), rule);
+        }
+        size++;
+    }
+
+    public void evaluate(int symbol, R record) {
+        if (size == 0 || symbol < 0)
+            return;
+        if (symbol >= previous.length)
+            previous = Arrays.copyOf(previous, Math.max(symbol + 1, previous.length * 2));
+        @SuppressWarnings("unchecked")
+        R before = (R) previous[symbol];
+        Rule<R>[] rules = symbol < bySymbol.length ? bySymbol[symbol] : null;
+        if (rules != null)
+            evaluate(rules, symbol, record, before);
+        evaluate(wildcard, symbol, record, before);
+        previous[symbol] = record;
+    }
+
+    public EventRingBuffer<FiredAlert> getAlerts() {
+        return alerts;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void evaluate(Rule<R>[] rules, int symbol, R record, R before) {
+        for (Rule<R> rule : rules) {
+            boolean matches = rule.condition.test(record, before);
+            if (edgeTriggered) {
+                if (matches == rule.active.get(symbol))
+                    continue;
+                rule.active.set(symbol, matches);
+            }
+            if (matches)
+                alerts.offer(new FiredAlert(System.currentTimeMillis(), rule.name, SymbolDictionary.SYMBOLS.name(symbol),
+                        rule.value != null ? rule.value.get(record, before) : Double.NaN));
+        }
+    }
+
+    private static <R> Rule<R>[] append(Rule<R>[] rules, Rule<R> rule) {
+        Rule<R>[] longer = Arrays.copyOf(rules, rules.length + 1);
+        longer[rules.length] = rule;
+        return longer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> Rule<R>[][] noSymbols() {
+        return (Rule<R>[][]) new Rule<?>[0][];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> Rule<R>[] noRules() {
+        return (Rule<R>[]) new Rule<?>[0];
+    }
+}
@@ -0,0 +1,146 @@
+package com.ashish.md.pipeline;
+
+// Rolling statistics of one symbol over the last windowMillis of event time: VWAP, trade rate and time-weighted
+// spread from a ring of BUCKETS time buckets with running totals, plus mid and top-of-book imbalance from the
+// latest quote. An event adds to its bucket and to the totals; moving into a new bucket subtracts the buckets
+// that fell out of the window. Every event is O(1) whatever the trading rate. Trades and quotes arrive on their own
+// updater threads and the FX thread reads, so every method locks this symbol's instance; other symbols never contend.
+public class SymbolAnalytics {
+
+    static final int BUCKETS = 60;
+
+    private final long bucketMillis;
+    // per bucket, indexed by bucket number modulo BUCKETS
+    private final double[] notional = new double[BUCKETS];
+    private final long[] volume = new long[BUCKETS];
+    private final long[] trades = new long[BUCKETS];
+    private final double[] spreadTime = new double[BUCKETS];
+    private final long[] quotedTime = new long[BUCKETS];
+    // the same sums over the whole window
+    private double totalNotional;
+    private long totalVolume;
+    private long totalTrades;
+    private double totalSpreadTime;
+    private long totalQuotedTime;
+    // newest bucket number (event time / bucketMillis), and the first one that ever saw an event
+    private long head = Long.MIN_VALUE;
+    private long first;
+
+    private long quoteTime = Long.MIN_VALUE;
+    private double bid;
+    private double ask;
+    private long bidSize;
+    private long askSize;
+    private long version;
+
+    public SymbolAnalytics(long windowMillis) {
+        this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+    }
+
+    public synchronized void onTrade(long time, double price, long quantity) {
+        int bucket = bucketFor(time);
+        if (bucket < 0)
+            return;
+        notional[bucket] += price * quantity;
+        volume[bucket] += quantity;
+        trades[bucket]++;
+        totalNotional += price * quantity;
+        totalVolume += quantity;
+        totalTrades++;
+        version++;
+    }
+
+    public synchronized void onQuote(long time, double bidPrice, long bidQuantity, double askPrice, long askQuantity) {
+        // the previous spread held from the previous quote until now; at most a window of it counts
+        if (time > quoteTime && quoteTime != Long.MIN_VALUE && bid > 0 && ask > 0) {
+            int bucket = bucketFor(time);
+            if (bucket >= 0) {
+                long held = Math.min(time - quoteTime, bucketMillis * BUCKETS);
+                spreadTime[bucket] += (ask - bid) * held;
+                quotedTime[bucket] += held;
+                totalSpreadTime += (ask - bid) * held;
+                totalQuotedTime += held;
+            }
+        }
+        if (time >= quoteTime) {
+            quoteTime = time;
+            bid = bidPrice;
+            ask = askPrice;
+            bidSize = bidQuantity;
+            askSize = askQuantity;
+        }
+        version++;
+    }
+
+    // NaN until the window holds a trade
+    public synchronized double getVwap() {
+        return totalVolume > 0 ? totalNotional / totalVolume : Double.NaN;
+    }
+
+    public synchronized long getVolume() {
+        return totalVolume;
+    }
+
+    // trades per second over the window, or over the part of it since the first event
+    public synchronized double getTradeRate() {
+        if (head == Long.MIN_VALUE)
+            return 0;
+        long buckets = Math.min(BUCKETS, head - first + 1);
+        return totalTrades * 1000.0 / (buckets * bucketMillis);
+    }
+
+    // spread weighted by how long each quote stood, NaN until two quotes were seen
+    public synchronized double getTimeWeightedSpread() {
+        return totalQuotedTime > 0 ? totalSpreadTime / totalQuotedTime : Double.NaN;
+    }
+
+    public synchronized double getMid() {
+        return bid > 0 && ask > 0 ? (bid + ask) / 2 : Double.NaN;
+    }
+
+    // (bid size - ask size) / (bid size + ask size) at the top of the book: +1 all bids, -1 all asks
+    public synchronized double getImbalance() {
+        long depth = bidSize + askSize;
+        return depth > 0 ? (double) (bidSize - askSize) / depth : Double.NaN;
+    }
+
+    // bumped by every trade or quote
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // the ring slot for an event at this time, moving the window forward first; -1 if it is older than the window
+    private int bucketFor(long time) {
+        long number = Math.floorDiv(time, bucketMillis);
+        if (head == Long.MIN_VALUE) {
+            head = number;
+            first = number;
+        } else if (number > head) {
+            long expired = Math.min(number - head, BUCKETS);
+            for (long i = 1; i <= expired; i++)
+                clear((int) Math.floorMod(head + i, (long) BUCKETS));
+            head = number;
+        } else if (number <= head - BUCKETS) {
+            return -1;
+        }
+        return (int) Math.floorMod(number, (long) BUCKETS);
+    }
+
+    private void clear(int bucket) {
+        totalNotional -= notional[bucket];
+        totalVolume -= volume[bucket];
+        totalTrades -= trades[bucket];
+        totalSpreadTime -= spreadTime[bucket];
+        totalQuotedTime -= quotedTime[bucket];
+        notional[bucket] = 0;
+        volume[bucket] = 0;
+        trades[bucket] = 0;
+        spreadTime[bucket] = 0;
+        quotedTime[bucket] = 0;
+        // subtracting doubles leaves rounding dust: an empty window starts again from an exact zero
+        if (totalVolume == 0)
+            totalNotional = 0;
+        if (totalQuotedTime == 0)
+            totalSpreadTime = 0;
+    }
+}
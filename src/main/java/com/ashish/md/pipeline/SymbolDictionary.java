@@ -0,0 +1,76 @@
+package com.ashish.md.pipeline;
+
+import org.apache.avro.util.Utf8;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compact int ids and canonical Strings for symbols, exchanges and the other repeated text the blotters index
+// (clients, sides, statuses), shared by every stream: a value is decoded into a String once, the first time it is
+// seen, and afterwards an Avro Utf8 is resolved by its bytes and a String by its cached hash, with no allocation. Ids are dense from 0, so containers, books and rows can index
+// primitive arrays by them instead of hashing Strings. Lookups are lock-free; only a new value takes the lock.
+// Safe for any number of threads.
+public class SymbolDictionary {
+
+    public static final SymbolDictionary SYMBOLS = new SymbolDictionary();
+    public static final SymbolDictionary EXCHANGES = new SymbolDictionary();
+    public static final SymbolDictionary CLIENTS = new SymbolDictionary();
+    // order sides and statuses, trade aggressor codes: a handful of values each
+    public static final SymbolDictionary CODES = new SymbolDictionary();
+
+    // Utf8 equals only other Utf8s and hashes its bytes, String hashes its chars: one map each
+    private final ConcurrentHashMap<Utf8, Integer> utf8Ids = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> stringIds = new ConcurrentHashMap<>();
+    // id -> canonical String; replaced by a longer copy under the lock, entries never change once written
+    private volatile String[] names = new String[256];
+    private volatile int size;
+
+    // the id of value, assigning the next one if it is new; -1 for null
+    public int id(CharSequence value) {
+        if (value == null)
+            return -1;
+        Integer id = value instanceof Utf8 ? utf8Ids.get(value) : stringIds.get(value.toString());
+        return id != null ? id : add(value);
+    }
+
+    // the id of value, or -1 if it was never seen
+    public int find(CharSequence value) {
+        if (value == null)
+            return -1;
+        Integer id = value instanceof Utf8 ? utf8Ids.get(value) : stringIds.get(value.toString());
+        return id != null ? id : -1;
+    }
+
+    public String name(int id) {
+        return id >= 0 ? names[id] : null;
+    }
+
+    // the canonical String equal to value
+    public String canonical(CharSequence value) {
+        return name(id(value));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private synchronized int add(CharSequence value) {
+        String text = value.toString();
+        Integer id = stringIds.get(text);
+        if (id == null) {
+            id = size;
+            String[] current = names;
+            if (id == current.length)
+                current = Arrays.copyOf(current, id * 2);
+            current[id] = text;
+            names = current;
+            size = id + 1;
+            // published after the name, so whoever finds the id also finds its name
+            stringIds.put(text, id);
+        }
+        // copy the key: the decoder may hand out the same Utf8 again with other bytes
+        if (value instanceof Utf8)
+            utf8Ids.putIfAbsent(new Utf8((Utf8) value), id);
+        return id;
+    }
+}
@@ -0,0 +1,128 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.Trade;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Joins each trade to the quote that stood at the trade's time and classifies its aggressor (Lee-Ready):
+// above the mid the buyer crossed the spread, below it the seller; at the mid, or with no quote, the tick test
+// decides (up from the last different price is a buy, down is a sell). A trade is held until the quote feed's
+// watermark reaches its time, so a lagging quote feed does not classify it against an older quote. A trade still
+// waiting after -Dmd.trades.join.hold.millis is classified against the quotes seen so far and counted as timed out.
+// Trades leave in the order they arrived. Runs on the trade updater thread.
+public class TradeClassifier {
+
+    public enum Aggressor {
+        BUY("B"), SELL("S"), UNKNOWN("");
+
+        private final String code;
+
+        Aggressor(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+    }
+
+    private static final class Held {
+        final int symbol;
+        final Trade trade;
+        final long arrived;
+
+        Held(int symbol, Trade trade, long arrived) {
+            this.symbol = symbol;
+            this.trade = trade;
+            this.arrived = arrived;
+        }
+    }
+
+    private final PrevailingQuotes quotes;
+    private final long holdMillis;
+    // trades waiting for the quote feed, oldest first
+    private final ArrayDeque<Held> held = new ArrayDeque<>();
+    private volatile long timedOut;
+    // per symbol id: last trade price (NaN before the first trade) and the direction of the last price change
+    private double[] lastPrice = new double[0];
+    private byte[] lastTick = new byte[0];
+    private final double[] quote = new double[2];
+
+    // holdMillis 0 classifies every trade on arrival
+    public TradeClassifier(PrevailingQuotes quotes, long holdMillis) {
+        this.quotes = quotes;
+        this.holdMillis = holdMillis;
+    }
+
+    // -Dmd.trades.join.hold.millis, how long a trade waits for the quote feed to reach its time
+    public static long defaultHoldMillis() {
+        return Long.getLong("md.trades.join.hold.millis", 250);
+    }
+
+    // holds the trade, then hands every trade that is ready to the sink; now is the arrival time in millis
+    public void offer(int symbol, Trade trade, long now, Consumer<? super ClassifiedTrade> sink) {
+        held.add(new Held(symbol, trade, now));
+        release(now, sink);
+    }
+
+    // classifies the held trades the quote feed has caught up with, or that waited holdMillis, up to the first that
+    // must still wait. Trades without a time do not wait
+    public int release(long now, Consumer<? super ClassifiedTrade> sink) {
+        long watermark = quotes.getWatermark();
+        int released = 0;
+        Held next;
+        while ((next = held.peek()) != null) {
+            Long time = next.trade.getTime();
+            if (time != null && time > watermark) {
+                if (now - next.arrived < holdMillis)
+                    break;
+                timedOut++;
+            }
+            held.poll();
+            sink.accept(classify(next.symbol, next.trade));
+            released++;
+        }
+        return released;
+    }
+
+    public int heldCount() {
+        return held.size();
+    }
+
+    // trades classified before the quote feed reached their time
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    // symbol is the trade's SymbolDictionary.SYMBOLS id, -1 when it has none; classifies against the quotes seen so far
+    public ClassifiedTrade classify(int symbol, Trade trade) {
+        if (symbol < 0 || trade.getPrice() == null)
+            return new ClassifiedTrade(trade, Double.NaN, Double.NaN, Aggressor.UNKNOWN);
+        double price = trade.getPrice();
+        long time = trade.getTime() != null ? trade.getTime() : Long.MAX_VALUE;
+        Aggressor tick = tickTest(symbol, price);
+        if (!quotes.prevailing(symbol, time, quote) || !(quote[0] > 0 && quote[1] >= quote[0]))
+            return new ClassifiedTrade(trade, Double.NaN, Double.NaN, tick);
+        double mid = (quote[0] + quote[1]) / 2;
+        Aggressor aggressor = price > mid ? Aggressor.BUY : price < mid ? Aggressor.SELL : tick;
+        return new ClassifiedTrade(trade, quote[0], quote[1], aggressor);
+    }
+
+    private Aggressor tickTest(int symbol, double price) {
+        if (symbol >= lastPrice.length) {
+            int length = Math.max(symbol + 1, lastPrice.length * 2);
+            int from = lastPrice.length;
+            lastPrice = Arrays.copyOf(lastPrice, length);
+            Arrays.fill(lastPrice, from, length, Double.NaN);
+            lastTick = Arrays.copyOf(lastTick, length);
+        }
+        double last = lastPrice[symbol];
+        // a zero tick keeps the direction of the last change
+        if (!Double.isNaN(last) && price != last)
+            lastTick[symbol] = (byte) (price > last ? 1 : -1);
+        lastPrice[symbol] = price;
+        return lastTick[symbol] > 0 ? Aggressor.BUY : lastTick[symbol] < 0 ? Aggressor.SELL : Aggressor.UNKNOWN;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ashish.md.pipeline;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+// How an updater waits when its feed has nothing for it, trading CPU for latency.
+// Chosen per stream with -D<topic>.wait=busy-spin|yield|park|blocking, or for all streams with -Dmd.wait.
+public enum WaitStrategy {
+
+    // never gives up the core: lowest latency, one full CPU per stream
+    BUSY_SPIN(0) {
+        @Override
+        public void idle(int idleCount) {
+        }
+    },
+    // lets other runnable threads in between polls
+    YIELD(0) {
+        @Override
+        public void idle(int idleCount) {
+            Thread.yield();
+        }
+    },
+    // spins, then yields, then parks with a growing pause capped at one millisecond
+    PARK(0) {
+        @Override
+        public void idle(int idleCount) {
+            if (idleCount < 100)
+                return;
+            if (idleCount < 200) {
+                Thread.yield();
+                return;
+            }
+            LockSupport.parkNanos(Math.min(1_000L << Math.min(idleCount - 200, 10), 1_000_000L));
+        }
+    },
+    // waits inside poll()/receive() and wakes as soon as data arrives: cheapest for quiet desks
+    BLOCKING(100) {
+        @Override
+        public void idle(int idleCount) {
+        }
+    };
+
+    private final long pollTimeoutMillis;
+    private final Duration pollTimeout;
+
+    WaitStrategy(long pollTimeoutMillis) {
+        this.pollTimeoutMillis = pollTimeoutMillis;
+        this.pollTimeout = Duration.ofMillis(pollTimeoutMillis);
+    }
+
+    // called after every poll or receive that returned nothing; idleCount restarts at 1 once data flows again
+    public abstract void idle(int idleCount);
+
+    // called after every poll or receive that threw; whatever the strategy, backs off from one millisecond doubling
+    // to one second, so a broken feed neither spins a core nor floods the log. failures restarts at 1 once it recovers
+    public void failed(int failures) {
+        LockSupport.parkNanos(Math.min(1_000_000L << Math.min(failures - 1, 10), 1_000_000_000L));
+    }
+
+    public Duration pollTimeout() {
+        return pollTimeout;
+    }
+
+    public Message receive(MessageConsumer consumer) throws JMSException {
+        return pollTimeoutMillis > 0 ? consumer.receive(pollTimeoutMillis) : consumer.receiveNoWait();
+    }
+
+    // like receive(consumer), blocking for at most maxWaitMillis, for an updater that has another consumer to check
+    public Message receive(MessageConsumer consumer, long maxWaitMillis) throws JMSException {
+        return pollTimeoutMillis > 0 ? consumer.receive(Math.min(pollTimeoutMillis, maxWaitMillis)) : consumer.receiveNoWait();
+    }
+
+    public static WaitStrategy forStream(String topic) {
+        String value = System.getProperty(topic + ".wait", System.getProperty("md.wait", "blocking"));
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
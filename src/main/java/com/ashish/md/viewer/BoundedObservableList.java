@@ -0,0 +1,124 @@
+package com.ashish.md.viewer;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Blotter rows kept in a fixed ring: once full, appending evicts the oldest rows, and the eviction and the
+// append are reported as one change so the TableView does a single layout pass.
+public class BoundedObservableList<E> extends ObservableListBase<E> {
+
+    private final Object[] items;
+    private int head;
+    private int size;
+
+    public BoundedObservableList(int capacity) {
+        this.items = new Object[Math.max(1, capacity)];
+    }
+
+    public static <E> BoundedObservableList<E> forMemoryBudget(long bytes, int bytesPerRow) {
+        return new BoundedObservableList<>((int) Math.min(Integer.MAX_VALUE - 8, bytes / bytesPerRow));
+    }
+
+    // -Dmd.blotter.memory.mb caps a blotter by estimated heap, otherwise -Dmd.blotter.rows (default 100000) caps the row count
+    public static <E> BoundedObservableList<E> fromSystemProperties(int bytesPerRow) {
+        Long megabytes = Long.getLong("md.blotter.memory.mb");
+        if (megabytes != null)
+            return forMemoryBudget(megabytes * 1024 * 1024, bytesPerRow);
+        return new BoundedObservableList<>(Integer.getInteger("md.blotter.rows", 100_000));
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return (E) items[(head + index) % items.length];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(E element) {
+        return addAll(Collections.singletonList(element));
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> elements) {
+        if (elements.isEmpty())
+            return false;
+        int incoming = elements.size();
+        // a batch larger than the ring only keeps its newest rows
+        int skip = Math.max(0, incoming - items.length);
+        int evict = Math.max(0, size + incoming - skip - items.length);
+        beginChange();
+        try {
+            if (evict > 0) {
+                List<E> removed = new ArrayList<>(evict);
+                for (int i = 0; i < evict; i++) {
+                    removed.add(get(i));
+                    items[(head + i) % items.length] = null;
+                }
+                head = (head + evict) % items.length;
+                size -= evict;
+                nextRemove(0, removed);
+            }
+            int from = size;
+            int i = 0;
+            for (E element : elements) {
+                if (i++ < skip)
+                    continue;
+                items[(head + size) % items.length] = element;
+                size++;
+            }
+            nextAdd(from, size);
+            modCount++;
+        } finally {
+            endChange();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean setAll(Collection<? extends E> elements) {
+        beginChange();
+        try {
+            if (size > 0) {
+                List<E> removed = new ArrayList<>(this);
+                Arrays.fill(items, null);
+                head = 0;
+                size = 0;
+                nextRemove(0, removed);
+            }
+            int i = 0;
+            int skip = Math.max(0, elements.size() - items.length);
+            for (E element : elements) {
+                if (i++ < skip)
+                    continue;
+                items[size++] = element;
+            }
+            if (size > 0)
+                nextAdd(0, size);
+            modCount++;
+        } finally {
+            endChange();
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        setAll(Collections.<E>emptyList());
+    }
+}
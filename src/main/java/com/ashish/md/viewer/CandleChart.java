@@ -0,0 +1,186 @@
+package com.ashish.md.viewer;
+
+import com.ashish.md.pipeline.CandleAggregator;
+import com.ashish.md.pipeline.CandleSeries;
+import javafx.geometry.VPos;
+import javafx.scene.Parent;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+// Price history of one symbol drawn on a Canvas, one OHLC bar and one volume bar per pixel column.
+// The candle interval is picked so at most two candles fall on a column (1s while the history is short,
+// then 5s, then 1m), so a paint touches O(width) candles whatever the length of the session.
+// Follows the symbol that traded last unless pinned. FX thread only; it only reads the aggregator, which the trade
+// updater feeds, and holds the aggregator's lock while it reads the candles.
+public class CandleChart {
+
+    private static final double VOLUME_SHARE = 0.2;
+    private static final Color BACKGROUND = Color.rgb(24, 24, 24);
+    private static final Color UP = Color.rgb(40, 160, 70);
+    private static final Color DOWN = Color.rgb(190, 50, 50);
+    private static final Color VOLUME = Color.rgb(70, 90, 120);
+    private static final Color TEXT = Color.rgb(225, 225, 225);
+
+    private final CandleAggregator candles;
+    private final String pinnedSymbol;
+    private final long windowMillis;
+    private final Canvas canvas = new Canvas();
+    private final Pane pane = new Pane(canvas);
+    // per pixel column, reused between paints
+    private double[] columnOpen = new double[0];
+    private double[] columnHigh = new double[0];
+    private double[] columnLow = new double[0];
+    private double[] columnClose = new double[0];
+    private long[] columnVolume = new long[0];
+    private boolean[] columnUsed = new boolean[0];
+
+    private String shownSymbol;
+    private long shownVersion = -1;
+    private long checkedVersion = -1;
+    private long shownInterval;
+    private boolean resized = true;
+
+    // windowMillis 0 shows all the history the aggregator kept
+    public CandleChart(CandleAggregator candles, String pinnedSymbol, long windowMillis) {
+        this.candles = candles;
+        this.pinnedSymbol = pinnedSymbol;
+        this.windowMillis = windowMillis;
+        canvas.widthProperty().bind(pane.widthProperty());
+        canvas.heightProperty().bind(pane.heightProperty());
+        canvas.widthProperty().addListener((observable, oldValue, newValue) -> resized = true);
+        canvas.heightProperty().addListener((observable, oldValue, newValue) -> resized = true);
+    }
+
+    public CandleAggregator getCandles() {
+        return candles;
+    }
+
+    public Parent getView() {
+        return pane;
+    }
+
+    // true when a trade arrived since the last paint, or the window was resized and has to be painted again
+    public boolean isStale() {
+        return resized || candles.getVersion() != checkedVersion;
+    }
+
+    public String getShownSymbol() {
+        return shownSymbol;
+    }
+
+    public long getShownInterval() {
+        return shownInterval;
+    }
+
+    // true when it painted, false when nothing changed since the last paint
+    public boolean paint() {
+        checkedVersion = candles.getVersion();
+        int width = (int) canvas.getWidth();
+        double height = canvas.getHeight();
+        synchronized (candles) {
+            if (!downsample(width, height))
+                return false;
+        }
+        draw(width, height);
+        return true;
+    }
+
+    // picks the symbol and interval and fills the columns; false when there is nothing new to paint
+    private boolean downsample(int width, double height) {
+        String symbol = pinnedSymbol != null ? pinnedSymbol : candles.getLastSymbol();
+        CandleSeries[] series = symbol != null ? candles.getSeries(symbol) : null;
+        if (series == null || series[0].size() == 0 || width <= 0 || height <= 0)
+            return false;
+        CandleSeries finest = series[0];
+        if (!resized && symbol.equals(shownSymbol) && finest.getVersion() == shownVersion)
+            return false;
+        resized = false;
+        shownSymbol = symbol;
+        shownVersion = finest.getVersion();
+
+        CandleSeries coarsest = series[series.length - 1];
+        long to = finest.start(finest.size() - 1) + finest.getIntervalMillis();
+        long from = coarsest.start(0);
+        if (windowMillis > 0)
+            from = Math.max(from, to - windowMillis);
+        CandleSeries chosen = coarsest;
+        for (CandleSeries candidate : series) {
+            int first = candidate.firstAtOrAfter(from);
+            // finer series may have dropped older candles; only use one that still covers the whole range
+            if (candidate.size() - first <= 2 * width && (candidate.start(0) <= from || candidate == coarsest)) {
+                chosen = candidate;
+                break;
+            }
+        }
+        shownInterval = chosen.getIntervalMillis();
+        downsample(chosen, from, to, width);
+        return true;
+    }
+
+    private void downsample(CandleSeries series, long from, long to, int width) {
+        if (columnUsed.length != width) {
+            columnOpen = new double[width];
+            columnHigh = new double[width];
+            columnLow = new double[width];
+            columnClose = new double[width];
+            columnVolume = new long[width];
+            columnUsed = new boolean[width];
+        }
+        Arrays.fill(columnUsed, false);
+        double span = Math.max(1, to - from);
+        for (int candle = series.firstAtOrAfter(from); candle < series.size(); candle++) {
+            int x = (int) Math.min(width - 1, (series.start(candle) - from) * width / span);
+            if (!columnUsed[x]) {
+                columnUsed[x] = true;
+                columnOpen[x] = series.open(candle);
+                columnHigh[x] = series.high(candle);
+                columnLow[x] = series.low(candle);
+                columnVolume[x] = 0;
+            } else {
+                columnHigh[x] = Math.max(columnHigh[x], series.high(candle));
+                columnLow[x] = Math.min(columnLow[x], series.low(candle));
+            }
+            columnClose[x] = series.close(candle);
+            columnVolume[x] += series.volume(candle);
+        }
+    }
+
+    private void draw(int width, double height) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        long maxVolume = 1;
+        for (int x = 0; x < width; x++) {
+            if (!columnUsed[x])
+                continue;
+            min = Math.min(min, columnLow[x]);
+            max = Math.max(max, columnHigh[x]);
+            maxVolume = Math.max(maxVolume, columnVolume[x]);
+        }
+        double range = max > min ? max - min : 1;
+        double priceHeight = height * (1 - VOLUME_SHARE) - 4;
+        double volumeHeight = height * VOLUME_SHARE;
+
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(BACKGROUND);
+        g.fillRect(0, 0, width, height);
+        g.setLineWidth(1);
+        for (int x = 0; x < width; x++) {
+            if (!columnUsed[x])
+                continue;
+            double px = x + 0.5;
+            g.setStroke(columnClose[x] >= columnOpen[x] ? UP : DOWN);
+            g.strokeLine(px, 2 + (max - columnHigh[x]) / range * priceHeight, px, 2 + (max - columnLow[x]) / range * priceHeight);
+            g.setStroke(VOLUME);
+            g.strokeLine(px, height, px, height - (double) columnVolume[x] / maxVolume * volumeHeight);
+        }
+        g.setFill(TEXT);
+        g.setTextBaseline(VPos.TOP);
+        g.fillText(String.valueOf(max), 4, 2);
+        g.setTextBaseline(VPos.BOTTOM);
+        g.fillText(String.valueOf(min), 4, priceHeight + 2);
+    }
+}
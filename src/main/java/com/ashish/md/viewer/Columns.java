@@ -0,0 +1,70 @@
+package com.ashish.md.viewer;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+// Table columns over plain row objects: the value is read straight from the row (no PropertyValueFactory
+// reflection) and turned into text in updateItem, i.e. only for cells that are on screen.
+final class Columns {
+
+    // where a column keeps the function reading its value from a row, for comparator()
+    private static final Object VALUE = new Object();
+
+    private Columns() {
+    }
+
+    static <S, T> TableColumn<S, T> column(String name, Function<S, T> value) {
+        return column(name, value, String::valueOf);
+    }
+
+    static <S, T> TableColumn<S, T> column(String name, Function<S, T> value, Function<? super T, String> format) {
+        TableColumn<S, T> column = new TableColumn<>(name);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        column.setCellFactory(c -> formattedCell(format));
+        column.getProperties().put(VALUE, value);
+        return column;
+    }
+
+    // for the few fields a row updates in place: the cell listens to the property and repaints when it changes
+    static <S, T> TableColumn<S, T> observable(String name, Function<S, ? extends ObservableValue<T>> value) {
+        TableColumn<S, T> column = new TableColumn<>(name);
+        column.setCellValueFactory(cell -> value.apply(cell.getValue()));
+        column.setCellFactory(c -> formattedCell(String::valueOf));
+        column.getProperties().put(VALUE, (Function<S, T>) row -> value.apply(row).getValue());
+        return column;
+    }
+
+    // the table's current sort order as a comparator over rows, reading values straight from the rows rather than
+    // through cell value factories; null when the table is not sorted
+    @SuppressWarnings("unchecked")
+    static <S> Comparator<S> comparator(TableView<S> tableView) {
+        Comparator<S> comparator = null;
+        for (TableColumn<S, ?> column : tableView.getSortOrder()) {
+            Function<S, Object> value = (Function<S, Object>) column.getProperties().get(VALUE);
+            if (value == null)
+                continue;
+            Comparator<Object> byValue = (Comparator<Object>) column.getComparator();
+            Comparator<S> byColumn = (a, b) -> byValue.compare(value.apply(a), value.apply(b));
+            if (column.getSortType() == TableColumn.SortType.DESCENDING)
+                byColumn = byColumn.reversed();
+            comparator = comparator == null ? byColumn : comparator.thenComparing(byColumn);
+        }
+        return comparator;
+    }
+
+    private static <S, T> TableCell<S, T> formattedCell(Function<? super T, String> format) {
+        return new TableCell<S, T>() {
+            @Override
+            protected void updateItem(T item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : format.apply(item));
+            }
+        };
+    }
+}
@@ -0,0 +1,198 @@
+package com.ashish.md.viewer;
+
+import com.ashish.md.pipeline.OrderBook;
+import javafx.geometry.VPos;
+import javafx.scene.Parent;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Arrays;
+
+// Depth ladder painted straight onto a Canvas: a pulse repaints only the levels whose price, size or order count
+// changed, so its cost is bounded by the number of levels however fast the book moves. A changed cell flashes
+// green (up) or red (down) and fades out. The optional heatmap appends one column of level sizes per pulse to a
+// WritableImage used as a ring, so the history scrolls without copying pixels. FX thread only.
+public class DepthLadder {
+
+    private static final long FLASH_NANOS = 400_000_000L;
+    private static final double ROW_HEIGHT = 18;
+    private static final double COLUMN_WIDTH = 80;
+    private static final int HEATMAP_HEIGHT = 200;
+    private static final String[] HEADERS = {"Orders", "Qty", "Bid", "Ask", "Qty", "Orders"};
+    // cells of a level, left to right
+    private static final int BID_ORDERS = 0, BID_QTY = 1, BID = 2, ASK = 3, ASK_QTY = 4, ASK_ORDERS = 5, CELLS = 6;
+
+    private static final Color BACKGROUND = Color.rgb(24, 24, 24);
+    private static final Color HEADER = Color.rgb(48, 48, 48);
+    private static final Color BID_SIDE = Color.rgb(20, 36, 60);
+    private static final Color ASK_SIDE = Color.rgb(60, 24, 24);
+    private static final Color UP = Color.rgb(40, 160, 70);
+    private static final Color DOWN = Color.rgb(190, 50, 50);
+    private static final Color TEXT = Color.rgb(225, 225, 225);
+
+    private final int levels;
+    private final Canvas ladder;
+    // value on screen per cell and level, when it last changed (0 once the flash is over) and which way it moved
+    private final double[][] values = new double[CELLS][];
+    private final long[][] changedAt = new long[CELLS][];
+    private final boolean[][] rising = new boolean[CELLS][];
+    private final boolean[] dirty;
+    private boolean flashing;
+
+    private final Canvas heatmap;
+    private final WritableImage heatmapImage;
+    // next column of the ring to write; the oldest column is the one it is about to overwrite
+    private int heatmapHead;
+    // decaying maximum level size, the full-intensity reference for the heatmap colours
+    private double heatmapScale = 1;
+
+    public DepthLadder(int levels, boolean withHeatmap) {
+        this.levels = levels;
+        this.ladder = new Canvas(COLUMN_WIDTH * CELLS, ROW_HEIGHT * (levels + 1));
+        for (int cell = 0; cell < CELLS; cell++) {
+            values[cell] = new double[levels];
+            changedAt[cell] = new long[levels];
+            rising[cell] = new boolean[levels];
+        }
+        this.dirty = new boolean[levels];
+        Arrays.fill(dirty, true);
+        if (withHeatmap) {
+            this.heatmap = new Canvas(ladder.getWidth(), HEATMAP_HEIGHT);
+            this.heatmapImage = new WritableImage((int) heatmap.getWidth(), HEATMAP_HEIGHT);
+        } else {
+            this.heatmap = null;
+            this.heatmapImage = null;
+        }
+        paintHeader();
+    }
+
+    public Parent getView() {
+        ScrollPane scrollPane = new ScrollPane(ladder);
+        return heatmap == null ? new VBox(scrollPane) : new VBox(scrollPane, heatmap);
+    }
+
+    // true while something on screen still has to move even without a new book: a fading flash or the heatmap
+    public boolean isAnimating() {
+        return flashing || heatmap != null;
+    }
+
+    public void update(OrderBook book, long now) {
+        int bidLevels = Math.min(book.bidLevels(), levels);
+        int askLevels = Math.min(book.askLevels(), levels);
+        for (int level = 0; level < levels; level++) {
+            // levels past the end of the book are set to 0, which paints as blank
+            boolean bid = level < bidLevels;
+            boolean ask = level < askLevels;
+            set(BID_ORDERS, level, bid ? book.bidOrders(level) : 0, now);
+            set(BID_QTY, level, bid ? book.bidSize(level) : 0, now);
+            set(BID, level, bid ? book.bidPrice(level) : 0, now);
+            set(ASK, level, ask ? book.askPrice(level) : 0, now);
+            set(ASK_QTY, level, ask ? book.askSize(level) : 0, now);
+            set(ASK_ORDERS, level, ask ? book.askOrders(level) : 0, now);
+        }
+    }
+
+    public void paint(long now) {
+        GraphicsContext g = ladder.getGraphicsContext2D();
+        g.setTextBaseline(VPos.CENTER);
+        g.setTextAlign(TextAlignment.RIGHT);
+        flashing = false;
+        for (int level = 0; level < levels; level++) {
+            if (dirty[level])
+                paintLevel(g, level, now);
+        }
+        if (heatmap != null)
+            paintHeatmap();
+    }
+
+    private void set(int cell, int level, double value, long now) {
+        double shown = values[cell][level];
+        if (shown == value)
+            return;
+        values[cell][level] = value;
+        // a level appearing or disappearing is not a price move, it only repaints
+        boolean move = shown != 0 && value != 0;
+        changedAt[cell][level] = move ? now : 0;
+        rising[cell][level] = value > shown;
+        dirty[level] = true;
+    }
+
+    private void paintLevel(GraphicsContext g, int level, long now) {
+        double y = ROW_HEIGHT * (level + 1);
+        boolean stillFlashing = false;
+        for (int cell = 0; cell < CELLS; cell++) {
+            Color background = cell < ASK ? BID_SIDE : ASK_SIDE;
+            long since = changedAt[cell][level];
+            if (since != 0) {
+                long age = now - since;
+                if (age < FLASH_NANOS) {
+                    background = (rising[cell][level] ? UP : DOWN).interpolate(background, (double) age / FLASH_NANOS);
+                    stillFlashing = true;
+                } else {
+                    changedAt[cell][level] = 0;
+                }
+            }
+            double x = COLUMN_WIDTH * cell;
+            g.setFill(background);
+            g.fillRect(x, y, COLUMN_WIDTH - 1, ROW_HEIGHT - 1);
+            double value = values[cell][level];
+            if (value != 0) {
+                g.setFill(TEXT);
+                g.fillText(cell == BID || cell == ASK ? String.valueOf(value) : String.valueOf((long) value),
+                        x + COLUMN_WIDTH - 6, y + ROW_HEIGHT / 2);
+            }
+        }
+        // a flashing level keeps repainting until its colour has faded back
+        dirty[level] = stillFlashing;
+        flashing |= stillFlashing;
+    }
+
+    private void paintHeader() {
+        GraphicsContext g = ladder.getGraphicsContext2D();
+        g.setFill(BACKGROUND);
+        g.fillRect(0, 0, ladder.getWidth(), ladder.getHeight());
+        g.setTextBaseline(VPos.CENTER);
+        g.setTextAlign(TextAlignment.RIGHT);
+        for (int cell = 0; cell < CELLS; cell++) {
+            double x = COLUMN_WIDTH * cell;
+            g.setFill(HEADER);
+            g.fillRect(x, 0, COLUMN_WIDTH - 1, ROW_HEIGHT - 1);
+            g.setFill(TEXT);
+            g.fillText(HEADERS[cell], x + COLUMN_WIDTH - 6, ROW_HEIGHT / 2);
+        }
+    }
+
+    // asks in the top half (deepest at the top), bids in the bottom half (best bid just under the middle)
+    private void paintHeatmap() {
+        double largest = 0;
+        for (int level = 0; level < levels; level++)
+            largest = Math.max(largest, Math.max(values[BID_QTY][level], values[ASK_QTY][level]));
+        heatmapScale = Math.max(heatmapScale * 0.999, largest);
+
+        PixelWriter pixels = heatmapImage.getPixelWriter();
+        int half = HEATMAP_HEIGHT / 2;
+        for (int y = 0; y < HEATMAP_HEIGHT; y++) {
+            boolean ask = y < half;
+            int level = ask ? (half - 1 - y) * levels / half : (y - half) * levels / half;
+            double size = values[ask ? ASK_QTY : BID_QTY][level];
+            int intensity = (int) Math.round(255 * Math.min(1, size / heatmapScale));
+            pixels.setArgb(heatmapHead, y, ask ? 0xFF000000 | intensity << 16 | (intensity / 4) << 8
+                    : 0xFF000000 | (intensity / 4) << 8 | intensity);
+        }
+        heatmapHead = (heatmapHead + 1) % (int) heatmapImage.getWidth();
+
+        // oldest columns on the left, newest on the right: two slices of the ring, no pixel copying
+        GraphicsContext g = heatmap.getGraphicsContext2D();
+        int width = (int) heatmapImage.getWidth();
+        int older = width - heatmapHead;
+        g.drawImage(heatmapImage, heatmapHead, 0, older, HEATMAP_HEIGHT, 0, 0, older, HEATMAP_HEIGHT);
+        if (heatmapHead > 0)
+            g.drawImage(heatmapImage, 0, 0, heatmapHead, HEATMAP_HEIGHT, older, 0, heatmapHead, HEATMAP_HEIGHT);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ashish.md.viewer;
+
+import com.ashish.md.pipeline.EventRingBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Turns the events waiting in a ring buffer into blotter rows and appends them with a single addAll per frame.
+// Conversion stops once the frame budget is spent; whatever is left stays in the ring for the next pulse.
+public class FrameBatch<T, R> {
+
+    private static final int CHUNK = 256;
+
+    private final Function<T, R> toRow;
+    private final long budgetNanos;
+    private final List<R> batch = new ArrayList<>();
+    private final Consumer<T> collect;
+
+    public FrameBatch(Function<T, R> toRow, long budgetNanos) {
+        this.toRow = toRow;
+        this.budgetNanos = budgetNanos;
+        this.collect = event -> {
+            R row = this.toRow.apply(event);
+            if (row != null)
+                batch.add(row);
+        };
+    }
+
+    // -Dmd.frame.budget.micros, time one blotter may spend converting events per pulse (default 4000)
+    public static <T, R> FrameBatch<T, R> fromSystemProperties(Function<T, R> toRow) {
+        return new FrameBatch<>(toRow, Long.getLong("md.frame.budget.micros", 4000) * 1000);
+    }
+
+    public int drain(EventRingBuffer<T> events, List<R> rows) {
+        return drain(events, rows, System.nanoTime() + budgetNanos);
+    }
+
+    // stops at whichever comes first, this blotter's own budget or the caller's deadline
+    public int drain(EventRingBuffer<T> events, List<R> rows, long frameDeadline) {
+        long deadline = System.nanoTime() + budgetNanos;
+        if (frameDeadline - deadline < 0)
+            deadline = frameDeadline;
+        int drained = 0;
+        int limit = events.capacity();
+        while (drained < limit) {
+            int chunk = events.drain(collect, Math.min(CHUNK, limit - drained));
+            drained += chunk;
+            if (chunk == 0 || System.nanoTime() >= deadline)
+                break;
+        }
+        if (!batch.isEmpty()) {
+            rows.addAll(batch);
+            batch.clear();
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ashish.md.viewer;
+
+import javafx.animation.AnimationTimer;
+import javafx.stage.Stage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The one AnimationTimer of the viewer. Every window registers a RenderTask; each pulse the tasks that have
+// data waiting run longest-waiting first until the frame budget is spent, and the rest go first on the next pulse.
+// Windows that are hidden or minimized keep draining their rings into their models but are not painted; they paint
+// once when they come back on screen.
+public class FrameScheduler extends AnimationTimer {
+
+    public interface RenderTask {
+        // true when new data is waiting in the task's rings
+        boolean hasWork();
+
+        // moves what it can out of the rings into the models before deadline (a System.nanoTime() value)
+        void drain(long now, long deadline);
+
+        // shows the models on screen: titles, labels, canvases, table refreshes
+        void render(long now);
+    }
+
+    private final long budgetNanos;
+    private final List<Entry> entries = new ArrayList<>();
+    private final List<Entry> ready = new ArrayList<>();
+
+    public FrameScheduler(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    // -Dmd.render.budget.micros, time all windows together may spend per pulse (default 8000, half a 60 Hz frame)
+    public static FrameScheduler fromSystemProperties() {
+        return new FrameScheduler(Long.getLong("md.render.budget.micros", 8000) * 1000);
+    }
+
+    // the task drains always and renders while at least one of its stages is on screen
+    public void register(RenderTask task, Stage... stages) {
+        entries.add(new Entry(task, stages));
+    }
+
+    @Override
+    public void handle(long now) {
+        long deadline = System.nanoTime() + budgetNanos;
+        for (Entry entry : entries) {
+            if (!entry.task.hasWork() && !(entry.unrendered && entry.isVisible()))
+                continue;
+            if (entry.waitingSince == 0)
+                entry.waitingSince = now;
+            ready.add(entry);
+        }
+        ready.sort((a, b) -> Long.compare(a.waitingSince, b.waitingSince));
+        for (Entry entry : ready) {
+            if (System.nanoTime() - deadline >= 0)
+                break;
+            try {
+                entry.task.drain(now, deadline);
+                entry.unrendered = !entry.isVisible();
+                if (!entry.unrendered)
+                    entry.task.render(now);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            entry.waitingSince = 0;
+        }
+        ready.clear();
+    }
+
+    private static class Entry {
+        final RenderTask task;
+        final Stage[] stages;
+        // pulse time the task was first seen with data and not yet rendered, 0 when up to date
+        long waitingSince;
+        // drained while hidden, so the screen is behind the models until the next render
+        boolean unrendered;
+
+        Entry(RenderTask task, Stage[] stages) {
+            this.task = task;
+            this.stages = stages;
+        }
+
+        boolean isVisible() {
+            for (Stage stage : stages) {
+                if (stage.isShowing() && !stage.isIconified())
+                    return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.ashish.md.viewer;
+
+import com.ashish.marketdata.avro.MarketByPrice;
+import com.ashish.marketdata.avro.MarketPrice;
+import com.ashish.marketdata.avro.Order;
+import com.ashish.marketdata.avro.Quote;
+import com.ashish.marketdata.avro.Trade;
+import com.ashish.md.pipeline.AlertRules;
+import com.ashish.md.pipeline.CandleAggregator;
+import com.ashish.md.pipeline.ClassifiedTrade;
+import com.ashish.md.pipeline.ConflationStore;
+import com.ashish.md.pipeline.EventRingBuffer;
+import com.ashish.md.pipeline.FiredAlert;
+import com.ashish.md.pipeline.LatencyHistogram;
+import com.ashish.md.pipeline.MarketAnalytics;
+import com.ashish.md.pipeline.MarketByPriceUpdater;
+import com.ashish.md.pipeline.MarketDepthContainer;
+import com.ashish.md.pipeline.MarketPriceContainer;
+import com.ashish.md.pipeline.MarketPriceUpdater;
+import com.ashish.md.pipeline.MarketQuoteContainer;
+import com.ashish.md.pipeline.MarketQuoteUpdater;
+import com.ashish.md.pipeline.MarketTradeContainer;
+import com.ashish.md.pipeline.MarketTradeUpdater;
+import com.ashish.md.pipeline.MultiplexedUpdater;
+import com.ashish.md.pipeline.OrderBooks;
+import com.ashish.md.pipeline.OrderExecutionsContainer;
+import com.ashish.md.pipeline.OrderExecutionsUpdater;
+import com.ashish.md.pipeline.PrevailingQuotes;
+import com.ashish.md.pipeline.SymbolDictionary;
+import com.ashish.md.pipeline.TradeClassifier;
+import com.ashish.md.viewer.MarketDataViewer.OrderExecutionView;
+import com.ashish.md.viewer.MarketDataViewer.QuoteView;
+import com.ashish.md.viewer.MarketDataViewer.TradeView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The viewer without a Stage: the same updaters fill the same containers, and a loop drains them at the FX pulse
+// rate into the same models the windows show (market watch, order books, FrameBatch-built blotter rows behind their
+// indexed views, the order index and its totals, candles and alerts); only tables and canvases are missing.
+// The models are javafx.collections and properties, which need no FX toolkit, so this runs on a plain JVM.
+// Every report interval it prints per stream: events drained per second, feed latency (now minus the event's own
+// timestamp, so sender and receiver clocks must agree), and what was dropped or conflated away.
+//
+// -Dmd.headless.frame.millis     drain interval (default 16, one 60 Hz frame)
+// -Dmd.headless.report.seconds   report interval (default 5)
+// -Dmd.headless.duration.seconds stop after this long, 0 runs until killed (default 0)
+// plus the viewer's own -Dmd.ingest, -D<topic>.wire, -D<topic>.wait, -Dmd.ring.capacity, -Dmd.conflation.symbols,
+// -Dexsim.nse.marketbyprice.book, -Dexsim.nse.marketbyprice.snapshots, -Dmd.analytics.window.seconds and -Dmd.alerts
+public class HeadlessPipeline {
+
+    // -Dmd.alerts, evaluated on the updater threads; here the alerts are only counted
+    private final AlertRules alertRules = AlertRules.fromSystemProperties();
+    private final MarketPriceContainer pricesContainer = new MarketPriceContainer(alertRules.getPrices());
+    private final MarketDepthContainer depthContainer = new MarketDepthContainer();
+    // quotes publish the bid and ask each trade is classified against
+    private final PrevailingQuotes prevailingQuotes = PrevailingQuotes.fromSystemProperties();
+    // rolling analytics, fed by the quote and trade updaters
+    private final MarketAnalytics analytics = MarketAnalytics.fromSystemProperties();
+    private final MarketQuoteContainer quoteContainer = new MarketQuoteContainer(prevailingQuotes, analytics, alertRules.getQuotes());
+    private final CandleAggregator candles = CandleAggregator.fromSystemProperties();
+    private final MarketTradeContainer tradeContainer = new MarketTradeContainer(prevailingQuotes, analytics, candles);
+    private final OrderExecutionsContainer orderExecutionsContainer = new OrderExecutionsContainer(alertRules.getOrders());
+
+    // the windows' models, built as MarketDataViewer builds them
+    private final StringInterner strings = new StringInterner(65536);
+    private final MarketWatch marketWatch = new MarketWatch(analytics);
+    private final OrderBooks books = new OrderBooks();
+    private final BoundedObservableList<QuoteView> quoteRows = BoundedObservableList.fromSystemProperties(QuoteView.ESTIMATED_BYTES);
+    private final BoundedObservableList<TradeView> tradeRows = TradeView.createRows();
+    private final IndexedBlotterView<TradeView> tradeView = TradeView.createView(tradeRows);
+    private final BoundedObservableList<OrderExecutionView> orderRows = OrderExecutionView.createRows();
+    private final OrderIndex orderIndex = new OrderIndex(orderRows, OrderExecutionView.createView(orderRows), strings);
+    private final BoundedObservableList<FiredAlert> alertRows = BoundedObservableList.fromSystemProperties(40);
+    private final FrameBatch<Quote, QuoteView> quoteBatch = FrameBatch.fromSystemProperties(this::toRow);
+    private final FrameBatch<ClassifiedTrade, TradeView> tradeBatch = FrameBatch.fromSystemProperties(this::toRow);
+    private final FrameBatch<Order, OrderExecutionView> orderBatch = FrameBatch.fromSystemProperties(this::toRow);
+    private final FrameBatch<FiredAlert, FiredAlert> alertBatch = FrameBatch.fromSystemProperties(alert -> alert);
+    // trades per TradeClassifier.Aggressor since start
+    private final long[] aggressors = new long[TradeClassifier.Aggressor.values().length];
+    // alerts fired since start
+    private long alerts;
+    // wall clock of the frame being drained, for the latency of each event converted in it
+    private long nowMillis;
+
+    private final StreamStats prices = new StreamStats("exsim.nse.marketprice");
+    private final StreamStats depth = new StreamStats("exsim.nse.marketbyprice");
+    private final StreamStats quotes = new StreamStats("exsim.nse.quotes");
+    private final StreamStats trades = new StreamStats("exsim.nse.trades");
+    private final StreamStats orders = new StreamStats("exsim.nse.executions");
+
+    public static void main(String[] args) throws InterruptedException {
+        new HeadlessPipeline().run(Long.getLong("md.headless.frame.millis", 16),
+                Long.getLong("md.headless.report.seconds", 5),
+                Long.getLong("md.headless.duration.seconds", 0));
+    }
+
+    public void run(long frameMillis, long reportSeconds, long durationSeconds) throws InterruptedException {
+        startUpdaters("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095");
+        long started = System.nanoTime();
+        long lastReport = started;
+        while (durationSeconds == 0 || System.nanoTime() - started < TimeUnit.SECONDS.toNanos(durationSeconds)) {
+            Thread.sleep(frameMillis);
+            drain(System.currentTimeMillis());
+            long now = System.nanoTime();
+            if (now - lastReport >= TimeUnit.SECONDS.toNanos(reportSeconds)) {
+                report((now - lastReport) / 1e9);
+                lastReport = now;
+            }
+        }
+        report((System.nanoTime() - lastReport) / 1e9);
+    }
+
+    private void startUpdaters(String kafkaServersUrl) {
+        List<Thread> updaters = new ArrayList<>();
+        if ("multiplexed".equals(System.getProperty("md.ingest"))) {
+            MultiplexedUpdater multiplexedUpdater = new MultiplexedUpdater(kafkaServersUrl);
+            multiplexedUpdater.route("exsim.nse.marketprice", MarketPrice.class, MarketPrice.getClassSchema(), pricesContainer::setMarketPrice);
+            multiplexedUpdater.route("exsim.nse.marketbyprice", MarketByPrice.class, MarketByPrice.getClassSchema(), depthContainer::setMarketByPrice);
+            if (depthContainer.isDelta() && depthContainer.getSnapshotTopic() != null)
+                multiplexedUpdater.route(depthContainer.getSnapshotTopic(), MarketByPrice.class, MarketByPrice.getClassSchema(), depthContainer::setSnapshot);
+            multiplexedUpdater.route("exsim.nse.quotes", Quote.class, Quote.getClassSchema(), (symbol, value) -> quoteContainer.setQuote(value));
+            multiplexedUpdater.route("exsim.nse.trades", Trade.class, Trade.getClassSchema(), (symbol, value) -> tradeContainer.setTrade(value));
+            multiplexedUpdater.afterPoll(tradeContainer::releaseHeld);
+            multiplexedUpdater.route("exsim.nse.executions", Order.class, Order.getClassSchema(), (symbol, value) -> orderExecutionsContainer.setOrder(value));
+            updaters.add(multiplexedUpdater);
+        } else {
+            updaters.add(new MarketPriceUpdater(pricesContainer, true));
+            updaters.add(new MarketByPriceUpdater(depthContainer, true));
+            updaters.add(new MarketQuoteUpdater(quoteContainer, true));
+            updaters.add(new MarketTradeUpdater(tradeContainer, true));
+            updaters.add(new OrderExecutionsUpdater(orderExecutionsContainer, true));
+        }
+        // updaters loop forever; daemon threads let the run end after -Dmd.headless.duration.seconds
+        for (Thread updater : updaters) {
+            updater.setDaemon(true);
+            updater.start();
+        }
+    }
+
+    // what the render tasks' drain() does each pulse, each blotter within its own -Dmd.frame.budget.micros
+    private void drain(long nowMillis) {
+        this.nowMillis = nowMillis;
+        pricesContainer.getMarketPrices().drainDirty((symbol, marketPrice) -> {
+            marketWatch.update(symbol, marketPrice);
+            prices.record(nowMillis, marketPrice.getLastTradeTime());
+        });
+        marketWatch.endUpdate();
+        // MarketByPrice carries no timestamp, so depth only counts
+        depth.count += books.drain(depthContainer);
+        quoteBatch.drain(quoteContainer.getQuotes(), quoteRows);
+        tradeBatch.drain(tradeContainer.getTrades(), tradeRows);
+        orderBatch.drain(orderExecutionsContainer.getOrders(), orderRows);
+        alerts += alertBatch.drain(alertRules.getPrices().getAlerts(), alertRows)
+                + alertBatch.drain(alertRules.getQuotes().getAlerts(), alertRows)
+                + alertBatch.drain(alertRules.getOrders().getAlerts(), alertRows);
+    }
+
+    // the viewer's converters, plus the latency of every event
+    private QuoteView toRow(Quote quote) {
+        quotes.record(nowMillis, quote.getTime());
+        return QuoteView.of(quote);
+    }
+
+    private TradeView toRow(ClassifiedTrade classified) {
+        trades.record(nowMillis, classified.getTrade().getTime());
+        aggressors[classified.getAggressor().ordinal()]++;
+        return TradeView.of(classified);
+    }
+
+    private OrderExecutionView toRow(Order order) {
+        orders.record(nowMillis, order.getOrdertime());
+        return order.getExchange() == null ? null : orderIndex.apply(order);
+    }
+
+    private void report(double seconds) {
+        ConflationStore<MarketPrice> marketPrices = pricesContainer.getMarketPrices();
+        System.out.println(prices.report(seconds) + ", published " + marketPrices.getPublished() + ", dropped " + marketPrices.getDropped() + ", market watch rows " + marketWatch.size());
+        if (depthContainer.isDelta()) {
+            System.out.println(depth.report(seconds) + dropped(depthContainer.getDeltas()) + ", symbols " + books.size() + ", stale " + books.staleCount());
+        } else {
+            ConflationStore<MarketByPrice> marketByPrices = depthContainer.getMarketByPrices();
+            System.out.println(depth.report(seconds) + ", published " + marketByPrices.getPublished() + ", dropped " + marketByPrices.getDropped() + ", symbols " + books.size());
+        }
+        System.out.println(quotes.report(seconds) + dropped(quoteContainer.getQuotes()) + ", rows " + quoteRows.size());
+        System.out.println(trades.report(seconds) + dropped(tradeContainer.getTrades()) + ", buyer/seller/unknown initiated "
+                + aggressors[TradeClassifier.Aggressor.BUY.ordinal()] + "/" + aggressors[TradeClassifier.Aggressor.SELL.ordinal()]
+                + "/" + aggressors[TradeClassifier.Aggressor.UNKNOWN.ordinal()] + ", joins timed out " + tradeContainer.getClassifier().getTimedOut()
+                + ", quotes dropped " + prevailingQuotes.getDropped()
+                + ", rows " + tradeView.size() + " of " + tradeRows.capacity());
+        System.out.println(orders.report(seconds) + dropped(orderExecutionsContainer.getOrders()) + ", orders " + orderIndex.size()
+                + " of " + orderRows.capacity() + ", clients " + orderIndex.getByClient().size());
+        System.out.println("analytics: " + analytics.size() + " symbols, dictionary: " + SymbolDictionary.SYMBOLS.size()
+                + " symbols, " + SymbolDictionary.EXCHANGES.size() + " exchanges");
+        System.out.println("alerts: " + alertRules.size() + " rules, " + alerts + " fired, rows " + alertRows.size());
+    }
+
+    private static String dropped(EventRingBuffer<?> events) {
+        return ", dropped " + events.getDropped() + " in " + events.getOverflows() + " overflows, backlog " + events.size();
+    }
+
+    private static class StreamStats {
+        final String topic;
+        final LatencyHistogram latency = new LatencyHistogram();
+        long count;
+        long total;
+
+        StreamStats(String topic) {
+            this.topic = topic;
+        }
+
+        void record(long nowMillis, Long eventMillis) {
+            count++;
+            if (eventMillis != null)
+                latency.record(nowMillis - eventMillis);
+        }
+
+        // rate and latency since the previous report, totals since start
+        String report(double seconds) {
+            total += count;
+            String line = String.format("%s: %.0f/s (%d total), latency p50 <= %d ms, p99 <= %d ms, max %d ms",
+                    topic, count / seconds, total, latency.percentile(50), latency.percentile(99), latency.getMax());
+            count = 0;
+            latency.reset();
+            return line;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.ashish.md.viewer;
+
+import com.ashish.md.pipeline.SymbolDictionary;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableView;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+// Filtered, sorted view of a blotter that is maintained row by row instead of re-sorting the whole list.
+// Rows matching the filter sit in an order-statistic tree, so an arriving or evicted row costs O(log n) and the
+// TableView is told exactly which position changed. Each indexed field (symbol, side, status...) keeps its rows
+// bucketed by the value's SymbolDictionary id, so filing a row and matching the filter compare ints, and changing
+// the filter only visits the rows of the smallest matching bucket.
+// Sorting follows the TableView's sort order through installSortPolicy. FX thread only.
+public class IndexedBlotterView<R> extends ObservableListBase<R> {
+
+    // one indexed field
+    private static final class Index<R> {
+        final SymbolDictionary dictionary;
+        final ToIntFunction<R> id;
+        // id -> rows with that value, in arrival order; a row without a value (id -1) is in no bucket
+        LinkedHashSet<R>[] buckets = noBuckets();
+        // the filter's text, null for none, and its id once the dictionary has seen that text, -1 until then
+        String filter;
+        int filterId = -1;
+
+        Index(SymbolDictionary dictionary, ToIntFunction<R> id) {
+            this.dictionary = dictionary;
+            this.id = id;
+        }
+
+        LinkedHashSet<R> bucket(int id) {
+            return id >= 0 && id < buckets.length ? buckets[id] : null;
+        }
+
+        // looked up again while unknown, so a filter typed before its first row matches that row once it arrives
+        int filterId() {
+            if (filterId < 0)
+                filterId = dictionary.find(filter);
+            return filterId;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <R> LinkedHashSet<R>[] noBuckets() {
+            return (LinkedHashSet<R>[]) new LinkedHashSet<?>[0];
+        }
+    }
+
+    private final Map<String, Index<R>> fields = new LinkedHashMap<>();
+    // the indexes whose field is filtered on
+    private final List<Index<R>> filtered = new ArrayList<>();
+    // arrival sequence of every row of the source, the tie-breaker that gives equal rows a stable order
+    private final Map<R, Long> sequences = new IdentityHashMap<>();
+    private final ObservableList<R> source;
+    private long nextSequence;
+    private Comparator<? super R> comparator;
+    private OrderStatisticTree<R> rows = new OrderStatisticTree<>(null);
+
+    public IndexedBlotterView(ObservableList<R> source) {
+        this.source = source;
+        source.addListener((ListChangeListener<R>) this::onSourceChanged);
+    }
+
+    // rough heap the view adds per row: a tree node, a sequence entry and a bucket entry per indexed field
+    public static int estimatedBytesPerRow(int indexedFields) {
+        return 56 + 48 * indexedFields;
+    }
+
+    // register every field before rows arrive; id gives a row's value as an id of dictionary, -1 for none
+    public IndexedBlotterView<R> index(String field, SymbolDictionary dictionary, ToIntFunction<R> id) {
+        fields.put(field, new Index<>(dictionary, id));
+        return this;
+    }
+
+    public Collection<String> getFields() {
+        return fields.keySet();
+    }
+
+    // exact match on an indexed field, null or empty clears that field's filter; an unchanged filter rebuilds nothing
+    public void setFilter(String field, String value) {
+        Index<R> index = fields.get(field);
+        if (index == null)
+            throw new IllegalArgumentException("Not an indexed field: " + field);
+        if (value != null && value.isEmpty())
+            value = null;
+        if (Objects.equals(index.filter, value))
+            return;
+        if (index.filter == null)
+            filtered.add(index);
+        else if (value == null)
+            filtered.remove(index);
+        index.filter = value;
+        index.filterId = -1;
+        rebuild();
+    }
+
+    public void setComparator(Comparator<? super R> comparator) {
+        this.comparator = comparator;
+        rebuild();
+    }
+
+    // lets the table's column headers sort this view instead of calling FXCollections.sort on it
+    public void installSortPolicy(TableView<R> tableView) {
+        tableView.setSortPolicy(table -> {
+            setComparator(Columns.comparator(table));
+            return true;
+        });
+    }
+
+    // for rows changed in place: takes the row out of the indexes, applies the change and puts it back
+    public void update(R row, Runnable change) {
+        Long sequence = sequences.get(row);
+        if (sequence == null) {
+            change.run();
+            return;
+        }
+        beginChange();
+        try {
+            unbucket(row);
+            int removed = rows.remove(row, sequence);
+            if (removed >= 0)
+                nextRemove(removed, row);
+            change.run();
+            bucket(row);
+            if (matches(row)) {
+                int added = rows.insert(row, sequence);
+                nextAdd(added, added + 1);
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    @Override
+    public R get(int index) {
+        if (index < 0 || index >= rows.size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rows.size());
+        return rows.get(index);
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+
+    private void onSourceChanged(ListChangeListener.Change<? extends R> change) {
+        beginChange();
+        try {
+            while (change.next()) {
+                for (R row : change.getRemoved()) {
+                    Long sequence = sequences.remove(row);
+                    if (sequence == null)
+                        continue;
+                    unbucket(row);
+                    int removed = rows.remove(row, sequence);
+                    if (removed >= 0)
+                        nextRemove(removed, row);
+                }
+                for (R row : change.getAddedSubList()) {
+                    long sequence = nextSequence++;
+                    sequences.put(row, sequence);
+                    bucket(row);
+                    if (matches(row)) {
+                        int added = rows.insert(row, sequence);
+                        nextAdd(added, added + 1);
+                    }
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    // refills the tree from the smallest bucket the filter selects, or from the whole source when unfiltered
+    private void rebuild() {
+        Iterable<R> candidates = source;
+        int smallest = Integer.MAX_VALUE;
+        for (Index<R> index : filtered) {
+            LinkedHashSet<R> bucket = index.bucket(index.filterId());
+            int size = bucket != null ? bucket.size() : 0;
+            if (size < smallest) {
+                smallest = size;
+                candidates = bucket != null ? bucket : Collections.<R>emptyList();
+            }
+        }
+        OrderStatisticTree<R> previous = rows;
+        OrderStatisticTree<R> next = new OrderStatisticTree<>(comparator);
+        for (R row : candidates) {
+            if (matches(row))
+                next.insert(row, sequences.get(row));
+        }
+        rows = next;
+        beginChange();
+        try {
+            if (previous.size() > 0)
+                nextRemove(0, new TreeList<>(previous));
+            if (next.size() > 0)
+                nextAdd(0, next.size());
+        } finally {
+            endChange();
+        }
+    }
+
+    private boolean matches(R row) {
+        for (Index<R> index : filtered) {
+            int wanted = index.filterId();
+            if (wanted < 0 || index.id.applyAsInt(row) != wanted)
+                return false;
+        }
+        return true;
+    }
+
+    private void bucket(R row) {
+        for (Index<R> index : fields.values()) {
+            int id = index.id.applyAsInt(row);
+            if (id < 0)
+                continue;
+            if (id >= index.buckets.length)
+                index.buckets = Arrays.copyOf(index.buckets, Math.max(id + 1, index.buckets.length * 2));
+            if (index.buckets[id] == null)
+                index.buckets[id] = new LinkedHashSet<>();
+            index.buckets[id].add(row);
+        }
+    }
+
+    private void unbucket(R row) {
+        for (Index<R> index : fields.values()) {
+            int id = index.id.applyAsInt(row);
+            LinkedHashSet<R> bucket = index.bucket(id);
+            if (bucket != null && bucket.remove(row) && bucket.isEmpty())
+                index.buckets[id] = null;
+        }
+    }
+
+    // the rows of a discarded tree, reported as removed without copying them
+    private static final class TreeList<R> extends AbstractList<R> {
+        private final OrderStatisticTree<R> tree;
+
+        TreeList(OrderStatisticTree<R> tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public R get(int index) {
+            return tree.get(index);
+        }
+
+        @Override
+        public int size() {
+            return tree.size();
+        }
+    }
+}
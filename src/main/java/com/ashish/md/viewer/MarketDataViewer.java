@@ -1,12 +1,37 @@
 package com.ashish.md.viewer;
 
 import com.ashish.marketdata.avro.*;
-import com.ashish.md.broker.EMSBroker;
-import com.ashish.md.broker.KafkaBroker;
-import javafx.animation.AnimationTimer;
+import com.ashish.md.pipeline.FiredAlert;
+import com.ashish.md.pipeline.AlertRules;
+import com.ashish.md.pipeline.CandleAggregator;
+import com.ashish.md.pipeline.ClassifiedTrade;
+import com.ashish.md.pipeline.EventRingBuffer;
+import com.ashish.md.pipeline.MarketAnalytics;
+import com.ashish.md.pipeline.MarketByPriceUpdater;
+import com.ashish.md.pipeline.MarketDepthContainer;
+import com.ashish.md.pipeline.MarketPriceContainer;
+import com.ashish.md.pipeline.MarketPriceUpdater;
+import com.ashish.md.pipeline.MarketQuoteContainer;
+import com.ashish.md.pipeline.MarketQuoteUpdater;
+import com.ashish.md.pipeline.MarketTradeContainer;
+import com.ashish.md.pipeline.MarketTradeUpdater;
+import com.ashish.md.pipeline.MultiplexedUpdater;
+import com.ashish.md.pipeline.OrderBook;
+import com.ashish.md.pipeline.OrderBooks;
+import com.ashish.md.pipeline.OrderExecutionsContainer;
+import com.ashish.md.pipeline.OrderExecutionsUpdater;
+import com.ashish.md.pipeline.PrevailingQuotes;
+import com.ashish.md.pipeline.SymbolDictionary;
 import javafx.animation.FillTransition;
+import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.ObservableList;
 import javafx.event.EventHandler;
@@ -15,26 +40,16 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import org.apache.avro.io.DatumReader;
-import org.apache.avro.io.Decoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.specific.SpecificDatumReader;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
-
-import javax.jms.Message;
-import javax.jms.TextMessage;
-import java.io.IOException;
+
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class MarketDataViewer extends Application {
 
@@ -42,12 +57,33 @@ public class MarketDataViewer extends Application {
         launch(args);
     }
 
+    // -Dmd.ingest=multiplexed reads all exsim.nse topics through one consumer instead of one per view
+    private MultiplexedUpdater multiplexedUpdater;
+    // shared by the blotters, which all build their rows on the FX thread
+    private final StringInterner strings = new StringInterner(65536);
+    // drives every window's rendering from a single pulse
+    private FrameScheduler frameScheduler;
+    // rolling per-symbol statistics, fed by the trade and quote updaters as records arrive, shown in the market watch
+    private final MarketAnalytics analytics = MarketAnalytics.fromSystemProperties();
+    // latest bids and asks, published by the quote updater and read by the trade updater to classify each trade
+    private final PrevailingQuotes prevailingQuotes = PrevailingQuotes.fromSystemProperties();
+    // -Dmd.alerts, evaluated by the containers on every decoded price, quote and order
+    private final AlertRules alertRules = AlertRules.fromSystemProperties();
+
     @Override
     public void start(Stage primaryStage) throws Exception {
+        if ("multiplexed".equals(System.getProperty("md.ingest")))
+            multiplexedUpdater = new MultiplexedUpdater("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095");
+        frameScheduler = FrameScheduler.fromSystemProperties();
+
+        // market watch stage, fed from the market price stream
+        MarketWatch marketWatch = new MarketWatch(analytics);
+        Stage marketWatchStage = new Stage();
+        viewMarketWatch(marketWatchStage, marketWatch);
 
         // market price stage
         Stage marketPriceStage = new Stage();
-        viewMarketPrice(marketPriceStage);
+        viewMarketPrice(marketPriceStage, marketWatchStage, marketWatch);
 
         // market depth stage
         viewMarketDepth(primaryStage);
@@ -63,10 +99,48 @@ public class MarketDataViewer extends Application {
         // Execution stage
         Stage executionStage = new Stage();
         viewExecutions(executionStage);
+
+        // Alert stage, only when rules were given
+        if (alertRules.size() > 0)
+            viewAlerts(new Stage());
+
+        frameScheduler.start();
+        if (multiplexedUpdater != null)
+            multiplexedUpdater.start();
+    }
+
+    // market watch setup
+    private void viewMarketWatch(Stage stage, MarketWatch marketWatch) {
+        TableView<MarketWatch.Row> tableView = marketWatch.createTableView();
+        VBox vbox = new VBox(tableView);
+        VBox.setVgrow(tableView, Priority.ALWAYS);
+        stage.setTitle("Market Watch");
+        stage.setX(100);
+        stage.setY(900);
+        stage.setHeight(400);
+        stage.setWidth(950);
+        stage.setScene(new Scene(vbox));
+        // prices refresh the table from the market price task; this one refreshes it when only the analytics moved
+        frameScheduler.register(new FrameScheduler.RenderTask() {
+            @Override
+            public boolean hasWork() {
+                return marketWatch.hasAnalyticsUpdate();
+            }
+
+            @Override
+            public void drain(long now, long deadline) {
+            }
+
+            @Override
+            public void render(long now) {
+                marketWatch.endUpdate();
+            }
+        }, stage);
+        stage.show();
     }
 
     // market price setup
-    private void viewMarketPrice(Stage stage) {
+    private void viewMarketPrice(Stage stage, Stage marketWatchStage, MarketWatch marketWatch) {
         stage.setX(600);
         stage.setY(100);
         stage.setWidth(400);
@@ -82,160 +156,75 @@ public class MarketDataViewer extends Application {
         Scene marketPriceScene = new Scene(root, 400, 500);
         stage.setScene(marketPriceScene);
 
-        MarketPriceContainer pricesContainer = new MarketPriceContainer();
-        MarketPriceUpdater priceUpdater = new MarketPriceUpdater(pricesContainer, true);
-        AnimationTimer renderMarketPrice = getAnimationTimerForMarketPrice(stage, cryptoLabels, pricesContainer);
+        MarketPriceContainer pricesContainer = new MarketPriceContainer(alertRules.getPrices());
         addWindowResizeListener(stage, background);
-        renderMarketPrice.start();
-        priceUpdater.start();
+        // the market watch is fed from this task, so it repaints while either window is visible
+        frameScheduler.register(getRenderTaskForMarketPrice(stage, cryptoLabels, pricesContainer, marketWatch), stage, marketWatchStage);
+        if (multiplexedUpdater != null)
+            multiplexedUpdater.route("exsim.nse.marketprice", MarketPrice.class, MarketPrice.getClassSchema(), pricesContainer::setMarketPrice);
+        else
+            new MarketPriceUpdater(pricesContainer, true).start();
         stage.show();
     }
 
-    private AnimationTimer getAnimationTimerForMarketPrice(Stage stage, Map<String, Label> marketPriceLabelsMap, MarketPriceContainer pricesContainer) {
-        AnimationTimer renderMarketPrice = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                if (pricesContainer.getLockObject().tryLock()) {
-                    try {
-                        stage.setTitle("Market Price for " + String.valueOf(pricesContainer.getMarketPrice().getSymbol()));
-                        Label symbol = marketPriceLabelsMap.get("Symbol");
-                        symbol.setText(String.valueOf(pricesContainer.getMarketPrice().getSymbol()));
-
-                        Label etherLabel = marketPriceLabelsMap.get("Exchange");
-                        etherLabel.setText(String.valueOf(pricesContainer.getMarketPrice().getExchange()));
-
-                        Label open = marketPriceLabelsMap.get("Open");
-                        open.setText(String.valueOf(pricesContainer.getMarketPrice().getOpen()));
-
-                        Label high = marketPriceLabelsMap.get("High");
-                        high.setText(String.valueOf(pricesContainer.getMarketPrice().getHigh()));
-
-                        Label low = marketPriceLabelsMap.get("Low");
-                        low.setText(String.valueOf(pricesContainer.getMarketPrice().getLow()));
-
-                        Label volume = marketPriceLabelsMap.get("Volume");
-                        volume.setText(String.valueOf(pricesContainer.getMarketPrice().getVolume()));
-
-                        Label lastTradePrice = marketPriceLabelsMap.get("LastTradePrice");
-                        lastTradePrice.setText(String.valueOf(pricesContainer.getMarketPrice().getLastPrice()));
-
-                        Label lastTradeSize = marketPriceLabelsMap.get("LastTradeSize");
-                        lastTradeSize.setText(String.valueOf(pricesContainer.getMarketPrice().getLastTradeSize()));
+    private FrameScheduler.RenderTask getRenderTaskForMarketPrice(Stage stage, Map<String, Label> marketPriceLabelsMap, MarketPriceContainer pricesContainer, MarketWatch marketWatch) {
+        FrameScheduler.RenderTask renderMarketPrice = new FrameScheduler.RenderTask() {
+            // -Dmd.symbol pins the window to one symbol, otherwise it follows the latest update; its id, -1 for none
+            private final int pinnedSymbol = SymbolDictionary.SYMBOLS.id(System.getProperty("md.symbol"));
+            private MarketPrice marketPrice;
+            private boolean changed;
+            // each label is reformatted only when its own field moved, the title only when the symbol did
+            private final TrackedLabel symbol = new TrackedLabel(marketPriceLabelsMap.get("Symbol"));
+            private final TrackedLabel exchange = new TrackedLabel(marketPriceLabelsMap.get("Exchange"));
+            private final TrackedLabel open = new TrackedLabel(marketPriceLabelsMap.get("Open"));
+            private final TrackedLabel high = new TrackedLabel(marketPriceLabelsMap.get("High"));
+            private final TrackedLabel low = new TrackedLabel(marketPriceLabelsMap.get("Low"));
+            private final TrackedLabel volume = new TrackedLabel(marketPriceLabelsMap.get("Volume"));
+            private final TrackedLabel lastTradePrice = new TrackedLabel(marketPriceLabelsMap.get("LastTradePrice"));
+            private final TrackedLabel lastTradeSize = new TrackedLabel(marketPriceLabelsMap.get("LastTradeSize"));
+            private final TrackedLabel lastTradeTime = new TrackedLabel(marketPriceLabelsMap.get("LastTradeTime"));
+            private final TrackedLabel lowerCircuit = new TrackedLabel(marketPriceLabelsMap.get("LowerCircuit"));
+            private final TrackedLabel upperCircuit = new TrackedLabel(marketPriceLabelsMap.get("UpperCircuit"));
 
-                        Label lastTradeTime = marketPriceLabelsMap.get("LastTradeTime");
-                        lastTradeTime.setText(String.valueOf(pricesContainer.getMarketPrice().getLastTradeTime()));
-
-                        Label lowerCircuit = marketPriceLabelsMap.get("LowerCircuit");
-                        lowerCircuit.setText(String.valueOf(pricesContainer.getMarketPrice().getLowerCircuit()));
-
-                        Label upperCircuit = marketPriceLabelsMap.get("UpperCircuit");
-                        upperCircuit.setText(String.valueOf(pricesContainer.getMarketPrice().getUperCircuit()));
-
-                    } finally {
-                        pricesContainer.getLockObject().unlock();
-                    }
-                }
+            @Override
+            public boolean hasWork() {
+                return pricesContainer.getMarketPrices().dirtyCount() > 0;
             }
-        };
-        return renderMarketPrice;
-    }
-
-    public static class MarketPriceContainer {
-        private Lock lockObject = new ReentrantLock();
-        private MarketPrice marketPrice;
 
-        public MarketPriceContainer() {
-            this.marketPrice = new MarketPrice();
-        }
-
-        public Lock getLockObject() {
-            return lockObject;
-        }
-
-        public MarketPrice getMarketPrice() {
-            return marketPrice;
-        }
-
-        public void setMarketPrice(MarketPrice marketPrice) {
-            this.marketPrice = marketPrice;
-        }
-    }
-
-    public static class MarketPriceUpdater extends Thread {
-        private MarketPriceContainer pricesContainer;
-        private KafkaConsumer<String, String> kafkaConsumer;
-        private EMSBroker emsBroker;
-        private boolean kafka;
-
-        public MarketPriceUpdater(MarketPriceContainer pricesContainer, boolean kafka) {
-            this.pricesContainer = pricesContainer;
-            this.kafka = kafka;
-            try {
-                if (!kafka) {
-                    emsBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
-                    emsBroker.createConsumer("exsim.nse.marketprice", true);
-                } else {
-                    this.kafkaConsumer = new KafkaBroker("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095").createConsumer(null);
-                    this.kafkaConsumer.subscribe(Arrays.asList("exsim.nse.marketprice"));
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
+            @Override
+            public void drain(long now, long deadline) {
+                pricesContainer.getMarketPrices().drainDirty(this::select);
             }
-        }
-
-        @Override
-        public void run() {
-
-            while (true) {
-                pricesContainer.getLockObject().lock();
-                try {
-                    if (!kafka) {
-                        Message msg = emsBroker.consumer().receive();
-                        if (msg == null)
-                            return;
-                        if (msg instanceof TextMessage) {
-                            TextMessage message = (TextMessage) msg;
-                            byte[] decoded = Base64.getDecoder().decode(message.getText());
-                            MarketPrice marketPrice = deSerealizeAvroHttpRequestJSON(decoded);
-                            pricesContainer.setMarketPrice(marketPrice);
-                        }
-                    } else {
-                        ConsumerRecords<String, String> records = kafkaConsumer.poll(java.time.Duration.ofMillis(10));
-                        for (ConsumerRecord<String, String> record : records) {
-                            String symbol = record.key();
-                            String data = record.value();
-                            byte[] decoded = Base64.getDecoder().decode(data);
-                            {
-                                MarketPrice marketPrice = deSerealizeAvroHttpRequestJSON(decoded);
-                                pricesContainer.setMarketPrice(marketPrice);
-                            }
-                        }
-                    }
 
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    pricesContainer.getLockObject().unlock();
-                }
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                }
+            @Override
+            public void render(long now) {
+                marketWatch.endUpdate();
+                if (!changed)
+                    return;
+                changed = false;
+                if (symbol.show(marketPrice.getSymbol()))
+                    stage.setTitle("Market Price for " + SymbolDictionary.SYMBOLS.canonical(marketPrice.getSymbol()));
+                exchange.show(marketPrice.getExchange());
+                open.show(marketPrice.getOpen());
+                high.show(marketPrice.getHigh());
+                low.show(marketPrice.getLow());
+                volume.show(marketPrice.getVolume());
+                lastTradePrice.show(marketPrice.getLastPrice());
+                lastTradeSize.show(marketPrice.getLastTradeSize());
+                lastTradeTime.show(marketPrice.getLastTradeTime());
+                lowerCircuit.show(marketPrice.getLowerCircuit());
+                upperCircuit.show(marketPrice.getUperCircuit());
             }
-        }
 
-        public MarketPrice deSerealizeAvroHttpRequestJSON(byte[] data) {
-            DatumReader<MarketPrice> reader
-                    = new SpecificDatumReader<>(MarketPrice.class);
-            Decoder decoder = null;
-            try {
-                decoder = DecoderFactory.get().jsonDecoder(MarketPrice.getClassSchema(), new String(data));
-                return reader.read(null, decoder);
-            } catch (IOException e) {
-                //logger.error("Deserialization error:" + e.getMessage());
+            private void select(int symbol, MarketPrice update) {
+                marketWatch.update(symbol, update);
+                if (pinnedSymbol < 0 || pinnedSymbol == symbol) {
+                    marketPrice = update;
+                    changed = true;
+                }
             }
-            return null;
-        }
+        };
+        return renderMarketPrice;
     }
 
     private Map<String, Label> createCryptoPriceLabels() {
@@ -323,271 +312,278 @@ public class MarketDataViewer extends Application {
     // Market depth setup
 
     private void viewMarketDepth(Stage primaryStage) {
-        TableView tableView = getMarketDepthTableView();
-        VBox vbox = new VBox(tableView);
-        Scene marketDepthScene = new Scene(vbox);
+        // -Dmd.depth.levels, how many price levels the ladder shows (5, 10, 20, 50, ...)
+        int levels = Integer.getInteger("md.depth.levels", 5);
+        MarketDepthContainer depthContainer = new MarketDepthContainer();
         primaryStage.setX(100);
         primaryStage.setY(100);
         primaryStage.setHeight(400);
         primaryStage.setWidth(500);
-        primaryStage.setScene(marketDepthScene);
-        MarketDepthContainer depthContainer = new MarketDepthContainer();
-        MarketByPriceUpdater marketByPriceUpdater = new MarketByPriceUpdater(depthContainer, true);
-
-        AnimationTimer renderMarketDepth = getAnimationTimerForMarketByPrice(primaryStage, tableView, depthContainer);
-        renderMarketDepth.start();
-        marketByPriceUpdater.start();
+        // -Dmd.depth.view=canvas paints the ladder on a Canvas for fast books, -Dmd.depth.heatmap=true adds the rolling heatmap
+        if ("canvas".equals(System.getProperty("md.depth.view"))) {
+            DepthLadder ladder = new DepthLadder(levels, Boolean.getBoolean("md.depth.heatmap"));
+            primaryStage.setScene(new Scene(ladder.getView()));
+            frameScheduler.register(getRenderTaskForDepthLadder(primaryStage, ladder, depthContainer), primaryStage);
+        } else {
+            TableView<DepthData> tableView = getMarketDepthTableView();
+            for (int i = 0; i < levels; i++)
+                tableView.getItems().add(new DepthData(0, 0, 0, 0, 0, 0));
+            primaryStage.setScene(new Scene(new VBox(tableView)));
+            frameScheduler.register(getRenderTaskForMarketByPrice(primaryStage, tableView, depthContainer), primaryStage);
+        }
+        if (multiplexedUpdater != null) {
+            multiplexedUpdater.route("exsim.nse.marketbyprice", MarketByPrice.class, MarketByPrice.getClassSchema(), depthContainer::setMarketByPrice);
+            if (depthContainer.isDelta() && depthContainer.getSnapshotTopic() != null)
+                multiplexedUpdater.route(depthContainer.getSnapshotTopic(), MarketByPrice.class, MarketByPrice.getClassSchema(), depthContainer::setSnapshot);
+        } else {
+            new MarketByPriceUpdater(depthContainer, true).start();
+        }
         primaryStage.show();
     }
 
-    private AnimationTimer getAnimationTimerForMarketByPrice(Stage primaryStage, TableView tableView, MarketDepthContainer depthContainer) {
-        AnimationTimer renderMarketDepth = new AnimationTimer() {
+    private FrameScheduler.RenderTask getRenderTaskForDepthLadder(Stage primaryStage, DepthLadder ladder, MarketDepthContainer depthContainer) {
+        return new FrameScheduler.RenderTask() {
+            private final DepthSelection selection = new DepthSelection(primaryStage, depthContainer);
+
+            @Override
+            public boolean hasWork() {
+                return depthContainer.hasUpdates() || ladder.isAnimating();
+            }
+
             @Override
-            public void handle(long now) {
-                if (depthContainer.getLockObject().tryLock()) {
-                    try {
-                        MarketByPrice marketByPrice = depthContainer.getMarketByPrice();
-                        ObservableList observableList = tableView.getItems();
-                        if (observableList.isEmpty()) {
-                            tableView.getItems().add(new DepthData(0, 0, 0, 0, 0, 0));
-                            tableView.getItems().add(new DepthData(0, 0, 0, 0, 0, 0));
-                            tableView.getItems().add(new DepthData(0, 0, 0, 0, 0, 0));
-                            tableView.getItems().add(new DepthData(0, 0, 0, 0, 0, 0));
-                            tableView.getItems().add(new DepthData(0, 0, 0, 0, 0, 0));
+            public void drain(long now, long deadline) {
+                OrderBook book = selection.next();
+                if (book != null)
+                    ladder.update(book, now);
+            }
 
+            // however many updates arrived since the last pulse, the ladder reads the resulting book and repaints once
+            @Override
+            public void render(long now) {
+                ladder.paint(now);
+            }
+        };
+    }
+
+    private FrameScheduler.RenderTask getRenderTaskForMarketByPrice(Stage primaryStage, TableView<DepthData> tableView, MarketDepthContainer depthContainer) {
+        FrameScheduler.RenderTask renderMarketDepth = new FrameScheduler.RenderTask() {
+            private final DepthSelection selection = new DepthSelection(primaryStage, depthContainer);
+            // the book that changed since the last render, null when the rows are up to date
+            private OrderBook book;
+
+            @Override
+            public boolean hasWork() {
+                return depthContainer.hasUpdates();
+            }
+
+            @Override
+            public void drain(long now, long deadline) {
+                OrderBook next = selection.next();
+                if (next != null)
+                    book = next;
+            }
+
+            // rows are fixed, one per level; setting a level's properties repaints only the cells whose value moved
+            @Override
+            public void render(long now) {
+                try {
+                    if (book == null)
+                        return;
+                    int bidLevels = book.bidLevels();
+                    int askLevels = book.askLevels();
+                    ObservableList<DepthData> rows = tableView.getItems();
+                    for (int i = 0; i < rows.size(); i++) {
+                        DepthData data = rows.get(i);
+                        if (i < bidLevels) {
+                            data.setBid(book.bidPrice(i));
+                            data.setBidQty(book.bidSize(i));
+                            data.setBidOrders(book.bidOrders(i));
                         } else {
-                            if (marketByPrice.getBidList() != null && !marketByPrice.getBidList().isEmpty()) {
-                                List<BidDepth> bidDepths = marketByPrice.getBidList();
-                                List<AskDepth> askDepths = marketByPrice.getAskList();
-                                String symbol = String.valueOf(marketByPrice.getSymbol());
-                                primaryStage.setTitle("Market Depth for " + symbol);
-
-                                int topSize = bidDepths.size() > askDepths.size() ? bidDepths.size() : ((bidDepths.size() < askDepths.size()) ? askDepths.size() : bidDepths.size());
-                                if (bidDepths.size() > 0 && bidDepths.size() < 6) {
-                                    for (int i = 0; i < bidDepths.size(); i++) {
-                                        BidDepth bidDepth = bidDepths.get(i);
-                                        DepthData data = (DepthData) tableView.getItems().get(i);
-                                        data.setBid(bidDepth.getBidPrice());
-                                        data.setBidQty(bidDepth.getBidSize());
-                                        data.setBidOrders(bidDepth.getBidOrders());
-                                    }
-                                }
-                                if (askDepths.size() > 0 && askDepths.size() < 6) {
-                                    for (int i = 0; i < askDepths.size(); i++) {
-                                        AskDepth askDepth = askDepths.get(i);
-                                        DepthData data = (DepthData) tableView.getItems().get(i);
-                                        data.setAsk(askDepth.getAskPrice());
-                                        data.setAskQty(askDepth.getAskSize());
-                                        data.setAskOrders(askDepth.getAskOrders());
-                                    }
-                                }
-                            }
+                            // the book got shallower: blank the levels it no longer has
+                            data.setBid(0);
+                            data.setBidQty(0);
+                            data.setBidOrders(0);
+                        }
+                        if (i < askLevels) {
+                            data.setAsk(book.askPrice(i));
+                            data.setAskQty(book.askSize(i));
+                            data.setAskOrders(book.askOrders(i));
+                        } else {
+                            data.setAsk(0);
+                            data.setAskQty(0);
+                            data.setAskOrders(0);
                         }
-                        tableView.refresh();
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    } finally {
-                        depthContainer.getLockObject().unlock();
                     }
+                    book = null;
+                } catch (Exception e) {
+                    e.printStackTrace();
                 }
             }
         };
         return renderMarketDepth;
     }
 
+    // Applies everything the depth feed delivered to the local books and picks the one a depth window shows:
+    // -Dmd.symbol pins the window to one symbol, otherwise it follows the latest update. FX thread only.
+    private static class DepthSelection {
+        private final String pinnedSymbol = System.getProperty("md.symbol");
+        private final Stage stage;
+        private final MarketDepthContainer depthContainer;
+        private final OrderBooks books = new OrderBooks();
+        private String shownSymbol;
+        private long shownVersion = -1;
+        private boolean shownStale;
+
+        DepthSelection(Stage stage, MarketDepthContainer depthContainer) {
+            this.stage = stage;
+            this.depthContainer = depthContainer;
+        }
+
+        // the book to show, or null when it did not change since the last call
+        OrderBook next() {
+            books.drain(depthContainer);
+            String symbol = pinnedSymbol != null ? pinnedSymbol : books.getLastSymbol();
+            OrderBook book = symbol != null ? books.get(symbol) : null;
+            if (book == null)
+                return null;
+            // a delta lost to a full ring leaves the book wrong until its next snapshot replaces it
+            boolean stale = book.isStale();
+            if (!symbol.equals(shownSymbol) || stale != shownStale) {
+                shownSymbol = symbol;
+                shownStale = stale;
+                stage.setTitle("Market Depth for " + symbol + (stale ? " (" + depthContainer.getDeltas().getDropped() + " deltas dropped, "
+                        + (depthContainer.getSnapshotTopic() != null ? "book may be stale until its next snapshot)" : "book may be stale)") : ""));
+            } else if (book.getVersion() == shownVersion) {
+                return null;
+            }
+            shownVersion = book.getVersion();
+            return book;
+        }
+    }
+
+    // one ladder level; each field is its own property so a TableView cell listens to exactly one value
     public static class DepthData {
-        private double bid;
-        private long bidQty;
-        private long bidOrders;
-        private double ask;
-        private long askQty;
-        private long askOrders;
+        private final DoubleProperty bid;
+        private final LongProperty bidQty;
+        private final LongProperty bidOrders;
+        private final DoubleProperty ask;
+        private final LongProperty askQty;
+        private final LongProperty askOrders;
 
         public DepthData(double bid, long bidQty, long bidOrders, double ask, long askQty, long askOrders) {
-            this.bid = bid;
-            this.bidQty = bidQty;
-            this.bidOrders = bidOrders;
-            this.ask = ask;
-            this.askQty = askQty;
-            this.askOrders = askOrders;
+            this.bid = new SimpleDoubleProperty(this, "bid", bid);
+            this.bidQty = new SimpleLongProperty(this, "bidQty", bidQty);
+            this.bidOrders = new SimpleLongProperty(this, "bidOrders", bidOrders);
+            this.ask = new SimpleDoubleProperty(this, "ask", ask);
+            this.askQty = new SimpleLongProperty(this, "askQty", askQty);
+            this.askOrders = new SimpleLongProperty(this, "askOrders", askOrders);
         }
 
         public double getBid() {
-            return bid;
+            return bid.get();
         }
 
+        // property setters only notify listeners when the value actually differs
         public void setBid(double bid) {
-            this.bid = bid;
+            this.bid.set(bid);
         }
 
-        public long getBidQty() {
-            return bidQty;
+        public DoubleProperty bidProperty() {
+            return bid;
         }
 
-        public void setBidQty(long bidQty) {
-            this.bidQty = bidQty;
+        public long getBidQty() {
+            return bidQty.get();
         }
 
-        public long getBidOrders() {
-            return bidOrders;
+        public void setBidQty(long bidQty) {
+            this.bidQty.set(bidQty);
         }
 
-        public void setBidOrders(long bidOrders) {
-            this.bidOrders = bidOrders;
+        public LongProperty bidQtyProperty() {
+            return bidQty;
         }
 
-        public double getAsk() {
-            return ask;
+        public long getBidOrders() {
+            return bidOrders.get();
         }
 
-        public void setAsk(double ask) {
-            this.ask = ask;
+        public void setBidOrders(long bidOrders) {
+            this.bidOrders.set(bidOrders);
         }
 
-        public long getAskQty() {
-            return askQty;
+        public LongProperty bidOrdersProperty() {
+            return bidOrders;
         }
 
-        public void setAskQty(long askQty) {
-            this.askQty = askQty;
+        public double getAsk() {
+            return ask.get();
         }
 
-        public long getAskOrders() {
-            return askOrders;
+        public void setAsk(double ask) {
+            this.ask.set(ask);
         }
 
-        public void setAskOrders(long askOrders) {
-            this.askOrders = askOrders;
+        public DoubleProperty askProperty() {
+            return ask;
         }
 
-        @Override
-        public String toString() {
-            return "Person{" +
-                    "bid=" + bid +
-                    ", bidQty=" + bidQty +
-                    ", bidOrders=" + bidOrders +
-                    ", ask=" + ask +
-                    ", askQty=" + askQty +
-                    ", askOrders=" + askOrders +
-                    '}';
+        public long getAskQty() {
+            return askQty.get();
         }
-    }
-
-    public static class MarketDepthContainer {
-        private Lock lockObject = new ReentrantLock();
-        private MarketByPrice marketByPrice;
 
-        public MarketDepthContainer() {
-            this.marketByPrice = new MarketByPrice();
+        public void setAskQty(long askQty) {
+            this.askQty.set(askQty);
         }
 
-        public Lock getLockObject() {
-            return lockObject;
+        public LongProperty askQtyProperty() {
+            return askQty;
         }
 
-        public MarketByPrice getMarketByPrice() {
-            return marketByPrice;
+        public long getAskOrders() {
+            return askOrders.get();
         }
 
-        public void setMarketByPrice(MarketByPrice marketByPrice) {
-            this.marketByPrice = marketByPrice;
+        public void setAskOrders(long askOrders) {
+            this.askOrders.set(askOrders);
         }
-    }
 
-    public static class MarketByPriceUpdater extends Thread {
-        private MarketDepthContainer marketDepthContainer;
-        private KafkaConsumer<String, String> kafkaConsumer;
-        private EMSBroker emsBroker;
-        private boolean kafka;
-
-        public MarketByPriceUpdater(MarketDepthContainer marketDepthContainer, boolean kafka) {
-            this.marketDepthContainer = marketDepthContainer;
-            this.kafka = kafka;
-            try {
-                if (!kafka) {
-                    emsBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
-                    emsBroker.createConsumer("exsim.nse.marketbyprice", true);
-                } else {
-                    this.kafkaConsumer = new KafkaBroker("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095").createConsumer(null);
-                    this.kafkaConsumer.subscribe(Arrays.asList("exsim.nse.marketbyprice"));
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        public LongProperty askOrdersProperty() {
+            return askOrders;
         }
 
         @Override
-        public void run() {
-            while (true) {
-                marketDepthContainer.getLockObject().lock();
-                try {
-                    if (!kafka) {
-                        Message msg = emsBroker.consumer().receive();
-                        if (msg == null)
-                            return;
-                        if (msg instanceof TextMessage) {
-                            TextMessage message = (TextMessage) msg;
-                            byte[] decoded = Base64.getDecoder().decode(message.getText());
-                            MarketByPrice marketByPrice = deSerealizeAvroHttpRequestJSON(decoded);
-                            marketDepthContainer.setMarketByPrice(marketByPrice);
-                        }
-                    } else {
-                        ConsumerRecords<String, String> records = kafkaConsumer.poll(java.time.Duration.ofMillis(10));
-                        for (ConsumerRecord<String, String> record : records) {
-                            String symbol = record.key();
-                            String data = record.value();
-                            byte[] decoded = Base64.getDecoder().decode(data);
-                            MarketByPrice marketByPrice = deSerealizeAvroHttpRequestJSON(decoded);
-                            marketDepthContainer.setMarketByPrice(marketByPrice);
-
-                        }
-                    }
-
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    marketDepthContainer.getLockObject().unlock();
-                }
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                }
-            }
-        }
-
-        public MarketByPrice deSerealizeAvroHttpRequestJSON(byte[] data) {
-            DatumReader<MarketByPrice> reader
-                    = new SpecificDatumReader<>(MarketByPrice.class);
-            Decoder decoder = null;
-            try {
-                decoder = DecoderFactory.get().jsonDecoder(MarketByPrice.getClassSchema(), new String(data));
-                return reader.read(null, decoder);
-            } catch (IOException e) {
-                //logger.error("Deserialization error:" + e.getMessage());
-            }
-            return null;
+        public String toString() {
+            return "DepthData{" +
+                    "bid=" + getBid() +
+                    ", bidQty=" + getBidQty() +
+                    ", bidOrders=" + getBidOrders() +
+                    ", ask=" + getAsk() +
+                    ", askQty=" + getAskQty() +
+                    ", askOrders=" + getAskOrders() +
+                    '}';
         }
     }
 
-    private TableView getMarketDepthTableView() {
-        TableView tableView = new TableView();
+    private TableView<DepthData> getMarketDepthTableView() {
+        TableView<DepthData> tableView = new TableView<>();
 
-        TableColumn<DepthData, String> column1 = new TableColumn<>("Bid");
+        TableColumn<DepthData, Number> column1 = new TableColumn<>("Bid");
         column1.setCellValueFactory(new PropertyValueFactory<>("bid"));
 
-        TableColumn<DepthData, String> column2 = new TableColumn<>("Qty");
+        TableColumn<DepthData, Number> column2 = new TableColumn<>("Qty");
         column2.setCellValueFactory(new PropertyValueFactory<>("bidQty"));
 
-        TableColumn<DepthData, String> column3 = new TableColumn<>("Orders");
+        TableColumn<DepthData, Number> column3 = new TableColumn<>("Orders");
         column3.setCellValueFactory(new PropertyValueFactory<>("bidOrders"));
 
-        TableColumn<DepthData, String> column4 = new TableColumn<>("Ask");
+        TableColumn<DepthData, Number> column4 = new TableColumn<>("Ask");
         column4.setCellValueFactory(new PropertyValueFactory<>("ask"));
 
-        TableColumn<DepthData, String> column5 = new TableColumn<>("Qty");
+        TableColumn<DepthData, Number> column5 = new TableColumn<>("Qty");
         column5.setCellValueFactory(new PropertyValueFactory<>("askQty"));
 
-        TableColumn<DepthData, String> column6 = new TableColumn<>("Orders");
+        TableColumn<DepthData, Number> column6 = new TableColumn<>("Orders");
         column6.setCellValueFactory(new PropertyValueFactory<>("askOrders"));
 
         tableView.getColumns().add(column1);
@@ -602,7 +598,8 @@ public class MarketDataViewer extends Application {
     // Quote setup
 
     private void viewQuotes(Stage quoteStage) {
-        TableView tableView = getQuoteTableView();
+        TableView<QuoteView> tableView = getQuoteTableView();
+        tableView.setItems(BoundedObservableList.fromSystemProperties(QuoteView.ESTIMATED_BYTES));
         VBox vbox = new VBox(tableView);
         Scene tradeStageScene = new Scene(vbox);
         quoteStage.setX(600);
@@ -611,49 +608,61 @@ public class MarketDataViewer extends Application {
         quoteStage.setWidth(580);
         quoteStage.setScene(tradeStageScene);
 
-        MarketQuoteContainer quoteContainer = new MarketQuoteContainer();
-        MarketQuoteUpdater quoteUpdater = new MarketQuoteUpdater(quoteContainer, true);
+        MarketQuoteContainer quoteContainer = new MarketQuoteContainer(prevailingQuotes, analytics, alertRules.getQuotes());
 
-        AnimationTimer renderMarketDepth = getAnimationTimerForQuote(quoteStage, tableView, quoteContainer);
-        renderMarketDepth.start();
-        quoteUpdater.start();
+        frameScheduler.register(getRenderTaskForQuote(quoteStage, tableView, quoteContainer), quoteStage);
+        if (multiplexedUpdater != null)
+            multiplexedUpdater.route("exsim.nse.quotes", Quote.class, Quote.getClassSchema(), (symbol, value) -> quoteContainer.setQuote(value));
+        else
+            new MarketQuoteUpdater(quoteContainer, true).start();
         quoteStage.show();
     }
 
-    private AnimationTimer getAnimationTimerForQuote(Stage quoteStage, TableView tableView, MarketQuoteContainer quoteContainer) {
-        AnimationTimer animationTimer = new AnimationTimer() {
+    private FrameScheduler.RenderTask getRenderTaskForQuote(Stage quoteStage, TableView<QuoteView> tableView, MarketQuoteContainer quoteContainer) {
+        FrameBatch<Quote, QuoteView> batch = FrameBatch.fromSystemProperties(QuoteView::of);
+        FrameScheduler.RenderTask renderTask = new FrameScheduler.RenderTask() {
             @Override
-            public void handle(long now) {
-                if (quoteContainer.getLockObject().tryLock()) {
-                    try {
-                        quoteStage.setTitle("Quote for " + String.valueOf(quoteContainer.getQuote().getSymbol()));
-                        Quote quote = quoteContainer.getQuote();
-                        Quote lastQuote = quoteContainer.getLastQuote();
-                        if (quote != null && quote.getExchange() != null && !lastQuote.equals(quote)) { // temporary workaround, has to be fixed at data side
-                            tableView.getItems().add(new QuoteView(String.valueOf(quote.getTime()), String.valueOf(quote.getBidprice()),
-                                    String.valueOf(quote.getBidsize()), String.valueOf(quote.getAsksize()), String.valueOf(quote.getAskprice()),
-                                    String.valueOf(quote.getExchange()), String.valueOf(quote.getSymbol())));
-                            quoteContainer.setLastQuote(quote);
-                        }
-                    } finally {
-                        quoteContainer.getLockObject().unlock();
-                    }
-                }
+            public boolean hasWork() {
+                return quoteContainer.getQuotes().size() > 0;
+            }
+
+            @Override
+            public void drain(long now, long deadline) {
+                batch.drain(quoteContainer.getQuotes(), tableView.getItems(), deadline);
+            }
+
+            @Override
+            public void render(long now) {
+                EventRingBuffer<Quote> quotes = quoteContainer.getQuotes();
+                quoteStage.setTitle("Quote for " + SymbolDictionary.SYMBOLS.canonical(quoteContainer.getQuote().getSymbol()) + droppedSuffix(quotes));
             }
         };
-        return animationTimer;
+        return renderTask;
     }
 
+    // one blotter row: numbers stay primitive and text fields share interned Strings; the cells format on display
     public static class QuoteView {
-        private String quoteTime;
-        private String bidprice;
-        private String bidsize;
-        private String asksize;
-        private String askprice;
-        private String exchange;
-        private String symbol;
-
-        public QuoteView(String quoteTime, String bidprice, String bidsize, String asksize, String askprice, String exchange, String symbol) {
+        // rough retained heap per row, used to size the blotter from -Dmd.blotter.memory.mb
+        static final int ESTIMATED_BYTES = 72;
+
+        private final long quoteTime;
+        private final double bidprice;
+        private final long bidsize;
+        private final long asksize;
+        private final double askprice;
+        // SymbolDictionary ids, shown as their canonical Strings
+        private final int exchange;
+        private final int symbol;
+
+        // the blotter row for a decoded quote, null for one without an exchange
+        public static QuoteView of(Quote quote) {
+            if (quote.getExchange() == null)
+                return null;
+            return new QuoteView(quote.getTime(), quote.getBidprice(), quote.getBidsize(), quote.getAsksize(), quote.getAskprice(),
+                    SymbolDictionary.EXCHANGES.id(quote.getExchange()), SymbolDictionary.SYMBOLS.id(quote.getSymbol()));
+        }
+
+        public QuoteView(long quoteTime, double bidprice, long bidsize, long asksize, double askprice, int exchange, int symbol) {
             this.quoteTime = quoteTime;
             this.bidprice = bidprice;
             this.bidsize = bidsize;
@@ -663,208 +672,57 @@ public class MarketDataViewer extends Application {
             this.symbol = symbol;
         }
 
-        public String getQuoteTime() {
+        public long getQuoteTime() {
             return quoteTime;
         }
 
-        public void setQuoteTime(String quoteTime) {
-            this.quoteTime = quoteTime;
-        }
-
-        public String getBidprice() {
+        public double getBidprice() {
             return bidprice;
         }
 
-        public void setBidprice(String bidprice) {
-            this.bidprice = bidprice;
-        }
-
-        public String getBidsize() {
+        public long getBidsize() {
             return bidsize;
         }
 
-        public void setBidsize(String bidsize) {
-            this.bidsize = bidsize;
-        }
-
-        public String getAsksize() {
+        public long getAsksize() {
             return asksize;
         }
 
-        public void setAsksize(String asksize) {
-            this.asksize = asksize;
-        }
-
-        public String getAskprice() {
+        public double getAskprice() {
             return askprice;
         }
 
-        public void setAskprice(String askprice) {
-            this.askprice = askprice;
-        }
-
         public String getExchange() {
-            return exchange;
-        }
-
-        public void setExchange(String exchange) {
-            this.exchange = exchange;
+            return SymbolDictionary.EXCHANGES.name(exchange);
         }
 
         public String getSymbol() {
-            return symbol;
-        }
-
-        public void setSymbol(String symbol) {
-            this.symbol = symbol;
+            return SymbolDictionary.SYMBOLS.name(symbol);
         }
     }
 
-    private TableView getQuoteTableView() {
-
-        TableView tableView = new TableView();
-        TableColumn<DepthData, String> column1 = new TableColumn<>("Time");
-        column1.setCellValueFactory(new PropertyValueFactory<>("quoteTime"));
-
-        TableColumn<DepthData, String> column2 = new TableColumn<>("Bidprice");
-        column2.setCellValueFactory(new PropertyValueFactory<>("bidprice"));
-
-        TableColumn<DepthData, String> column3 = new TableColumn<>("BidSize");
-        column3.setCellValueFactory(new PropertyValueFactory<>("bidsize"));
-
-        TableColumn<DepthData, String> column4 = new TableColumn<>("Asksize");
-        column4.setCellValueFactory(new PropertyValueFactory<>("asksize"));
-
-        TableColumn<DepthData, String> column5 = new TableColumn<>("Askprice");
-        column5.setCellValueFactory(new PropertyValueFactory<>("askprice"));
-
-        TableColumn<DepthData, String> column6 = new TableColumn<>("Symbol");
-        column6.setCellValueFactory(new PropertyValueFactory<>("symbol"));
-
-        TableColumn<DepthData, String> column7 = new TableColumn<>("Exchange");
-        column7.setCellValueFactory(new PropertyValueFactory<>("exchange"));
-
-        tableView.getColumns().add(column1);
-        tableView.getColumns().add(column2);
-        tableView.getColumns().add(column3);
-        tableView.getColumns().add(column4);
-        tableView.getColumns().add(column5);
-        tableView.getColumns().add(column6);
-        tableView.getColumns().add(column7);
-
+    private TableView<QuoteView> getQuoteTableView() {
+        TableView<QuoteView> tableView = new TableView<>();
+        tableView.getColumns().add(Columns.column("Time", QuoteView::getQuoteTime));
+        tableView.getColumns().add(Columns.column("Bidprice", QuoteView::getBidprice));
+        tableView.getColumns().add(Columns.column("BidSize", QuoteView::getBidsize));
+        tableView.getColumns().add(Columns.column("Asksize", QuoteView::getAsksize));
+        tableView.getColumns().add(Columns.column("Askprice", QuoteView::getAskprice));
+        tableView.getColumns().add(Columns.column("Symbol", QuoteView::getSymbol));
+        tableView.getColumns().add(Columns.column("Exchange", QuoteView::getExchange));
         return tableView;
     }
 
-    public static class MarketQuoteContainer {
-        private Lock lockObject = new ReentrantLock();
-        private Quote quote;
-        private Quote lastQuote;
-
-        public MarketQuoteContainer() {
-            this.quote = new Quote();
-            this.lastQuote = quote;
-        }
-
-        public Lock getLockObject() {
-            return lockObject;
-        }
-
-        public Quote getQuote() {
-            return quote;
-        }
-
-        public void setQuote(Quote quote) {
-            this.quote = quote;
-        }
-
-        public Quote getLastQuote() {
-            return lastQuote;
-        }
-
-        public void setLastQuote(Quote lastQuote) {
-            this.lastQuote = lastQuote;
-        }
-    }
-
-    public static class MarketQuoteUpdater extends Thread {
-        private MarketQuoteContainer quoteContainer;
-        private KafkaConsumer<String, String> kafkaConsumer;
-        private EMSBroker emsBroker;
-        private boolean kafka;
-
-        public MarketQuoteUpdater(MarketQuoteContainer quoteContainer, boolean kafka) {
-            this.quoteContainer = quoteContainer;
-            this.kafka = kafka;
-            try {
-                if (!kafka) {
-                    emsBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
-                    emsBroker.createConsumer("exsim.nse.quotes", true);
-                } else {
-                    this.kafkaConsumer = new KafkaBroker("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095").createConsumer(null);
-                    this.kafkaConsumer.subscribe(Arrays.asList("exsim.nse.quotes"));
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        @Override
-        public void run() {
-            while (true) {
-                quoteContainer.getLockObject().lock();
-                try {
-                    if (!kafka) {
-                        Message msg = emsBroker.consumer().receive();
-                        if (msg == null)
-                            return;
-                        if (msg instanceof TextMessage) {
-                            TextMessage message = (TextMessage) msg;
-                            byte[] decoded = Base64.getDecoder().decode(message.getText());
-                            Quote quote = deSerealizeAvroHttpRequestJSON(decoded);
-                            quoteContainer.setQuote(quote);
-                        }
-                    } else {
-                        ConsumerRecords<String, String> records = kafkaConsumer.poll(java.time.Duration.ofMillis(10));
-                        for (ConsumerRecord<String, String> record : records) {
-                            String symbol = record.key();
-                            String data = record.value();
-                            byte[] decoded = Base64.getDecoder().decode(data);
-                            {
-                                Quote quote = deSerealizeAvroHttpRequestJSON(decoded);
-                                quoteContainer.setQuote(quote);
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    quoteContainer.getLockObject().unlock();
-                }
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                }
-            }
-        }
-
-        public Quote deSerealizeAvroHttpRequestJSON(byte[] data) {
-            DatumReader<Quote> reader
-                    = new SpecificDatumReader<>(Quote.class);
-            Decoder decoder = null;
-            try {
-                decoder = DecoderFactory.get().jsonDecoder(Quote.getClassSchema(), new String(data));
-                return reader.read(null, decoder);
-            } catch (IOException e) {
-                //logger.error("Deserialization error:" + e.getMessage());
-            }
-            return null;
-        }
-    }
-
     /// trade setup
     private void viewTrades(Stage tradeStage) {
-        TableView tableView = getTradeTableView();
-        VBox vbox = new VBox(tableView);
+        TableView<TradeView> tableView = getTradeTableView();
+        // the table shows an indexed view; new trades go into the bounded list behind it
+        BoundedObservableList<TradeView> trades = TradeView.createRows();
+        IndexedBlotterView<TradeView> view = TradeView.createView(trades);
+        tableView.setItems(view);
+        view.installSortPolicy(tableView);
+        VBox vbox = new VBox(filterBar(view), tableView);
+        VBox.setVgrow(tableView, Priority.ALWAYS);
         Scene tradeStageScene = new Scene(vbox);
         tradeStage.setX(100);
         tradeStage.setY(500);
@@ -872,587 +730,432 @@ public class MarketDataViewer extends Application {
         tradeStage.setWidth(500);
         tradeStage.setScene(tradeStageScene);
 
-        MarketTradeContainer tradeContainer = new MarketTradeContainer();
-        MarketTradeUpdater tradeUpdater = new MarketTradeUpdater(tradeContainer, true);
-
-        AnimationTimer renderMarketDepth = getAnimationTimerForTrade(tradeStage, tableView, tradeContainer);
-
-        renderMarketDepth.start();
-        tradeUpdater.start();
+        // candles are built on the updater thread from every trade; the chart repaints from the blotter's task
+        CandleAggregator candles = CandleAggregator.fromSystemProperties();
+        MarketTradeContainer tradeContainer = new MarketTradeContainer(prevailingQuotes, analytics, candles);
+        CandleChart chart = new CandleChart(candles, System.getProperty("md.symbol"), Long.getLong("md.chart.window.minutes", 0) * 60_000);
+        Stage chartStage = new Stage();
+        chartStage.setX(600);
+        chartStage.setY(900);
+        chartStage.setHeight(400);
+        chartStage.setWidth(950);
+        chartStage.setTitle("Chart");
+        chartStage.setScene(new Scene(chart.getView()));
+
+        frameScheduler.register(getRenderTaskForTrade(tradeStage, trades, tradeContainer, chartStage, chart), tradeStage, chartStage);
+        if (multiplexedUpdater != null) {
+            multiplexedUpdater.route("exsim.nse.trades", Trade.class, Trade.getClassSchema(), (symbol, value) -> tradeContainer.setTrade(value));
+            multiplexedUpdater.afterPoll(tradeContainer::releaseHeld);
+        } else {
+            new MarketTradeUpdater(tradeContainer, true).start();
+        }
         tradeStage.show();
+        chartStage.show();
     }
 
-    private AnimationTimer getAnimationTimerForTrade(Stage tradeStage, TableView tableView, MarketTradeContainer tradeContainer) {
-        AnimationTimer animationTimer = new AnimationTimer() {
+    private FrameScheduler.RenderTask getRenderTaskForTrade(Stage tradeStage, List<TradeView> rows, MarketTradeContainer tradeContainer,
+                                                           Stage chartStage, CandleChart chart) {
+        FrameBatch<ClassifiedTrade, TradeView> batch = FrameBatch.fromSystemProperties(TradeView::of);
+        FrameScheduler.RenderTask renderTask = new FrameScheduler.RenderTask() {
             @Override
-            public void handle(long now) {
-                if (tradeContainer.getLockObject().tryLock()) {
-                    try {
-                        tradeStage.setTitle("Trade for " + String.valueOf(tradeContainer.getTrade().getSymbol()));
-                        Trade trade = tradeContainer.getTrade();
-                        Trade lastTrade = tradeContainer.getLastTrade();
-                        if (trade != null && trade.getExchange() != null && !trade.equals(lastTrade)) { // temporary workaround, has to be fixed at data side
-                            tableView.getItems().add(new TradeView(String.valueOf(trade.getTime()), String.valueOf(trade.getSize()), String.valueOf(trade.getPrice()), String.valueOf(trade.getSymbol()), String.valueOf(trade.getExchange())));
-                            tradeContainer.setLastTrade(trade);
-                        }
+            public boolean hasWork() {
+                return tradeContainer.getTrades().size() > 0 || chart.isStale();
+            }
 
-                    } finally {
-                        tradeContainer.getLockObject().unlock();
-                    }
-                }
+            @Override
+            public void drain(long now, long deadline) {
+                batch.drain(tradeContainer.getTrades(), rows, deadline);
+            }
+
+            @Override
+            public void render(long now) {
+                EventRingBuffer<ClassifiedTrade> trades = tradeContainer.getTrades();
+                tradeStage.setTitle("Trade for " + SymbolDictionary.SYMBOLS.canonical(tradeContainer.getTrade().getSymbol()) + droppedSuffix(trades));
+                if (chart.paint())
+                    chartStage.setTitle("Chart for " + chart.getShownSymbol() + " (" + chart.getShownInterval() / 1000 + "s candles)");
             }
         };
-        return animationTimer;
+        return renderTask;
     }
 
+    // one blotter row: numbers stay primitive and text fields share interned Strings; the cells format on display
     public static class TradeView {
-        private String tradeTime;
-        private String tradeQty;
-        private String tradePrice;
-        private String symbol;
-        private String exchange;
-
-        public TradeView(String tradeTime, String tradeQty, String tradePrice, String symbol, String exchange) {
+        // rough retained heap per row, used to size the blotter from -Dmd.blotter.memory.mb
+        static final int ESTIMATED_BYTES = 72;
+
+        private final long tradeTime;
+        private final long tradeQty;
+        private final double tradePrice;
+        // SymbolDictionary ids, shown as their canonical Strings
+        private final int symbol;
+        private final int exchange;
+        // the quote standing when the trade printed, NaN when none was known
+        private final double bid;
+        private final double ask;
+        // SymbolDictionary.CODES id of "B" buyer-initiated, "S" seller-initiated, "" undetermined
+        private final int aggressor;
+
+        // the blotter row for a classified trade, null for one without an exchange
+        public static TradeView of(ClassifiedTrade classified) {
+            Trade trade = classified.getTrade();
+            if (trade.getExchange() == null)
+                return null;
+            return new TradeView(trade.getTime(), trade.getSize(), trade.getPrice(), SymbolDictionary.SYMBOLS.id(trade.getSymbol()), SymbolDictionary.EXCHANGES.id(trade.getExchange()),
+                    classified.getBid(), classified.getAsk(), classified.getAggressor().getCode());
+        }
+
+        // the bounded list the blotter appends to, sized from -Dmd.blotter.memory.mb
+        public static BoundedObservableList<TradeView> createRows() {
+            return BoundedObservableList.fromSystemProperties(ESTIMATED_BYTES + IndexedBlotterView.estimatedBytesPerRow(3));
+        }
+
+        // the indexed view the table shows over those rows
+        public static IndexedBlotterView<TradeView> createView(ObservableList<TradeView> rows) {
+            return new IndexedBlotterView<TradeView>(rows)
+                    .index("Symbol", SymbolDictionary.SYMBOLS, row -> row.symbol)
+                    .index("Exchange", SymbolDictionary.EXCHANGES, row -> row.exchange)
+                    .index("Aggressor", SymbolDictionary.CODES, row -> row.aggressor);
+        }
+
+        public TradeView(long tradeTime, long tradeQty, double tradePrice, int symbol, int exchange,
+                         double bid, double ask, String aggressor) {
             this.tradeTime = tradeTime;
             this.tradeQty = tradeQty;
             this.tradePrice = tradePrice;
             this.symbol = symbol;
             this.exchange = exchange;
+            this.bid = bid;
+            this.ask = ask;
+            this.aggressor = SymbolDictionary.CODES.id(aggressor);
         }
 
-        public String getTradeTime() {
+        public long getTradeTime() {
             return tradeTime;
         }
 
-        public void setTradeTime(String tradeTime) {
-            this.tradeTime = tradeTime;
-        }
-
-        public String getTradeQty() {
+        public long getTradeQty() {
             return tradeQty;
         }
 
-        public void setTradeQty(String tradeQty) {
-            this.tradeQty = tradeQty;
-        }
-
-        public String getTradePrice() {
+        public double getTradePrice() {
             return tradePrice;
         }
 
-        public void setTradePrice(String tradePrice) {
-            this.tradePrice = tradePrice;
-        }
-
         public String getSymbol() {
-            return symbol;
-        }
-
-        public void setSymbol(String symbol) {
-            this.symbol = symbol;
+            return SymbolDictionary.SYMBOLS.name(symbol);
         }
 
         public String getExchange() {
-            return exchange;
+            return SymbolDictionary.EXCHANGES.name(exchange);
         }
 
-        public void setExchange(String exchange) {
-            this.exchange = exchange;
-        }
-    }
-
-    private TableView getTradeTableView() {
-        TableView tableView = new TableView();
-
-        TableColumn<DepthData, String> column1 = new TableColumn<>("Time");
-        column1.setCellValueFactory(new PropertyValueFactory<>("tradeTime"));
-
-        TableColumn<DepthData, String> column2 = new TableColumn<>("Quantity");
-        column2.setCellValueFactory(new PropertyValueFactory<>("tradeQty"));
-
-        TableColumn<DepthData, String> column3 = new TableColumn<>("Price");
-        column3.setCellValueFactory(new PropertyValueFactory<>("tradePrice"));
-
-        TableColumn<DepthData, String> column4 = new TableColumn<>("Symbol");
-        column4.setCellValueFactory(new PropertyValueFactory<>("symbol"));
-
-        TableColumn<DepthData, String> column5 = new TableColumn<>("Exchange");
-        column5.setCellValueFactory(new PropertyValueFactory<>("exchange"));
-
-        tableView.getColumns().add(column1);
-        tableView.getColumns().add(column2);
-        tableView.getColumns().add(column3);
-        tableView.getColumns().add(column4);
-        tableView.getColumns().add(column5);
-        return tableView;
-    }
-
-    public static class MarketTradeContainer {
-        private Lock lockObject = new ReentrantLock();
-        private Trade trade;
-        private Trade lastTrade;
-
-        public MarketTradeContainer() {
-            this.trade = new Trade();
-            this.lastTrade = trade;
-        }
-
-        public Lock getLockObject() {
-            return lockObject;
-        }
-
-        public Trade getTrade() {
-            return trade;
-        }
-
-        public void setTrade(Trade trade) {
-            this.trade = trade;
+        public double getBid() {
+            return bid;
         }
 
-        public Trade getLastTrade() {
-            return lastTrade;
+        public double getAsk() {
+            return ask;
         }
 
-        public void setLastTrade(Trade lastTrade) {
-            this.lastTrade = lastTrade;
+        public String getAggressor() {
+            return SymbolDictionary.CODES.name(aggressor);
         }
     }
 
-    public static class MarketTradeUpdater extends Thread {
-        private MarketTradeContainer tradeContainer;
-        private KafkaConsumer<String, String> kafkaConsumer;
-        private EMSBroker emsBroker;
-        private boolean kafka;
-
-        public MarketTradeUpdater(MarketTradeContainer tradeContainer, boolean kafka) {
-            this.tradeContainer = tradeContainer;
-            this.kafka = kafka;
-            try {
-                if (!kafka) {
-                    emsBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
-                    emsBroker.createConsumer("exsim.nse.trades", true);
-                } else {
-                    this.kafkaConsumer = new KafkaBroker("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095").createConsumer(null);
-                    this.kafkaConsumer.subscribe(Arrays.asList("exsim.nse.trades"));
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        @Override
-        public void run() {
-            while (true) {
-                tradeContainer.getLockObject().lock();
-                try {
-                    if (!kafka) {
-                        Message msg = emsBroker.consumer().receive();
-                        if (msg == null)
-                            return;
-                        if (msg instanceof TextMessage) {
-                            TextMessage message = (TextMessage) msg;
-                            byte[] decoded = Base64.getDecoder().decode(message.getText());
-                            Trade trade = deSerealizeAvroHttpRequestJSON(decoded);
-                            tradeContainer.setTrade(trade);
-                        }
-                    } else {
-                        ConsumerRecords<String, String> records = kafkaConsumer.poll(java.time.Duration.ofMillis(10));
-                        for (ConsumerRecord<String, String> record : records) {
-                            String symbol = record.key();
-                            String data = record.value();
-                            byte[] decoded = Base64.getDecoder().decode(data);
-                            {
-                                Trade trade = deSerealizeAvroHttpRequestJSON(decoded);
-                                tradeContainer.setTrade(trade);
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    tradeContainer.getLockObject().unlock();
-                }
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                }
-            }
-        }
-
-        public Trade deSerealizeAvroHttpRequestJSON(byte[] data) {
-            DatumReader<Trade> reader
-                    = new SpecificDatumReader<>(Trade.class);
-            Decoder decoder = null;
-            try {
-                decoder = DecoderFactory.get().jsonDecoder(Trade.getClassSchema(), new String(data));
-                return reader.read(null, decoder);
-            } catch (IOException e) {
-                //logger.error("Deserialization error:" + e.getMessage());
-            }
-            return null;
-        }
+    private TableView<TradeView> getTradeTableView() {
+        TableView<TradeView> tableView = new TableView<>();
+        tableView.getColumns().add(Columns.column("Time", TradeView::getTradeTime));
+        tableView.getColumns().add(Columns.column("Quantity", TradeView::getTradeQty));
+        tableView.getColumns().add(Columns.column("Price", TradeView::getTradePrice));
+        tableView.getColumns().add(Columns.column("Symbol", TradeView::getSymbol));
+        tableView.getColumns().add(Columns.column("Exchange", TradeView::getExchange));
+        // no quote known yet shows as an empty cell
+        tableView.getColumns().add(Columns.column("Bid", TradeView::getBid, price -> Double.isNaN(price) ? "" : String.valueOf(price)));
+        tableView.getColumns().add(Columns.column("Ask", TradeView::getAsk, price -> Double.isNaN(price) ? "" : String.valueOf(price)));
+        tableView.getColumns().add(Columns.column("Aggressor", TradeView::getAggressor));
+        return tableView;
     }
 
     // execution started
 
     private void viewExecutions(Stage executionStage) {
-        TableView tableView = getExecutionTableView();
-        VBox vbox = new VBox(tableView);
+        TableView<OrderExecutionView> tableView = getExecutionTableView();
+        // the table shows an indexed view; new orders go into the bounded list behind it
+        BoundedObservableList<OrderExecutionView> orders = OrderExecutionView.createRows();
+        IndexedBlotterView<OrderExecutionView> view = OrderExecutionView.createView(orders);
+        tableView.setItems(view);
+        view.installSortPolicy(tableView);
+        OrderIndex orderIndex = new OrderIndex(orders, view, strings);
+        HBox totals = new HBox(orderIndex.getByClient().createTableView(), orderIndex.getBySymbol().createTableView());
+        VBox vbox = new VBox(filterBar(view), tableView, totals);
+        VBox.setVgrow(tableView, Priority.ALWAYS);
         Scene executionStageScene = new Scene(vbox);
         executionStage.setX(950);
         executionStage.setY(100);
-        executionStage.setHeight(400);
+        executionStage.setHeight(700);
         executionStage.setWidth(950);
         executionStage.setScene(executionStageScene);
 
-        OrderExecutionsContainer orderExecutionsContainer = new OrderExecutionsContainer();
-        OrderExecutionsUpdater orderExecutionsUpdater = new OrderExecutionsUpdater(orderExecutionsContainer, true);
-
-        AnimationTimer renderMarketDepth = getAnimationTimerForOrderExecution(executionStage, tableView, orderExecutionsContainer);
+        OrderExecutionsContainer orderExecutionsContainer = new OrderExecutionsContainer(alertRules.getOrders());
 
-        renderMarketDepth.start();
-        orderExecutionsUpdater.start();
+        frameScheduler.register(getRenderTaskForOrderExecution(executionStage, orders, orderExecutionsContainer, orderIndex), executionStage);
+        if (multiplexedUpdater != null)
+            multiplexedUpdater.route("exsim.nse.executions", Order.class, Order.getClassSchema(), (symbol, value) -> orderExecutionsContainer.setOrder(value));
+        else
+            new OrderExecutionsUpdater(orderExecutionsContainer, true).start();
         executionStage.show();
     }
+    // one row per order: quantities and prices stay primitive, symbol, exchange, client, side and status are dictionary
+    // ids, other repeated text (client name, broker) is interned, and only the order id is a String of its own. Status,
+    // filled and remaining change as the order fills, so they are properties the cells listen to; everything else is
+    // fixed when the order is first seen
     public static class OrderExecutionView {
-        private String orderId;
-        private String clientId;
-        private String clientName;
-        private String ordertime;
-        private String side;
-        private String brokerId;
-        private String quantity;
-        private String orderStatus;
-        private String filledQuantity;
-        private String remainingQuantity;
-        private String limitPrice;
-        private String symbol;
-        private String exchange;
-
-        public OrderExecutionView() {
-        }
-
-        public OrderExecutionView(String orderId, String clientId, String clientName, String ordertime, String side, String brokerId, String quantity, String orderStatus, String filledQuantity, String remainingQuantity, String limitPrice, String symbol, String exchange) {
-            this.orderId = orderId;
-            this.clientId = clientId;
-            this.clientName = clientName;
-            this.ordertime = ordertime;
-            this.side = side;
-            this.brokerId = brokerId;
-            this.quantity = quantity;
-            this.orderStatus = orderStatus;
-            this.filledQuantity = filledQuantity;
-            this.remainingQuantity = remainingQuantity;
-            this.limitPrice = limitPrice;
-            this.symbol = symbol;
-            this.exchange = exchange;
+        // rough retained heap per row including its order id and properties, used to size the blotter from -Dmd.blotter.memory.mb
+        static final int ESTIMATED_BYTES = 280;
+
+        private final String orderId;
+        // SymbolDictionary.CLIENTS id
+        private final int client;
+        private final String clientName;
+        private final long ordertime;
+        // SymbolDictionary.CODES ids
+        private final int side;
+        private int status;
+        private final String brokerId;
+        private final long quantity;
+        // the status's canonical String, for the cell to listen to
+        private final ObjectProperty<String> orderStatus = new SimpleObjectProperty<>(this, "orderStatus");
+        private final LongProperty filledQuantity = new SimpleLongProperty(this, "filledQuantity");
+        private final LongProperty remainingQuantity = new SimpleLongProperty(this, "remainingQuantity");
+        private final double limitPrice;
+        private final int symbol;
+        private final int exchange;
+
+        // the bounded list the blotter appends to, sized from -Dmd.blotter.memory.mb
+        public static BoundedObservableList<OrderExecutionView> createRows() {
+            return BoundedObservableList.fromSystemProperties(ESTIMATED_BYTES + IndexedBlotterView.estimatedBytesPerRow(5));
+        }
+
+        // the indexed view the table shows over those rows
+        public static IndexedBlotterView<OrderExecutionView> createView(ObservableList<OrderExecutionView> rows) {
+            return new IndexedBlotterView<OrderExecutionView>(rows)
+                    .index("Symbol", SymbolDictionary.SYMBOLS, row -> row.symbol)
+                    .index("Side", SymbolDictionary.CODES, row -> row.side)
+                    .index("OrderStatus", SymbolDictionary.CODES, row -> row.status)
+                    .index("Client", SymbolDictionary.CLIENTS, row -> row.client)
+                    .index("Exchange", SymbolDictionary.EXCHANGES, row -> row.exchange);
+        }
+
+        public OrderExecutionView(Order order, StringInterner strings) {
+            this.orderId = String.valueOf(order.getOrderId());
+            this.client = SymbolDictionary.CLIENTS.id(order.getClientId());
+            this.clientName = strings.intern(order.getClientName());
+            this.ordertime = order.getOrdertime();
+            this.side = SymbolDictionary.CODES.id(order.getSide());
+            this.brokerId = strings.intern(order.getBrokerId());
+            this.quantity = order.getQuantity();
+            this.limitPrice = order.getLimitPrice();
+            this.symbol = SymbolDictionary.SYMBOLS.id(order.getSymbol());
+            this.exchange = SymbolDictionary.EXCHANGES.id(order.getExchange());
+            update(order);
+        }
+
+        // a later event for the same order
+        public void update(Order order) {
+            status = SymbolDictionary.CODES.id(order.getOrderStatus());
+            orderStatus.set(SymbolDictionary.CODES.name(status));
+            filledQuantity.set(order.getFilledQuantity());
+            remainingQuantity.set(order.getRemainingQuantity());
         }
 
         public String getOrderId() {
             return orderId;
         }
 
-        public void setOrderId(String orderId) {
-            this.orderId = orderId;
-        }
-
         public String getClientId() {
-            return clientId;
-        }
-
-        public void setClientId(String clientId) {
-            this.clientId = clientId;
+            return SymbolDictionary.CLIENTS.name(client);
         }
 
         public String getClientName() {
             return clientName;
         }
 
-        public void setClientName(String clientName) {
-            this.clientName = clientName;
-        }
-
-        public String getOrdertime() {
+        public long getOrdertime() {
             return ordertime;
         }
 
-        public void setOrdertime(String ordertime) {
-            this.ordertime = ordertime;
-        }
-
         public String getSide() {
-            return side;
-        }
-
-        public void setSide(String side) {
-            this.side = side;
+            return SymbolDictionary.CODES.name(side);
         }
 
         public String getBrokerId() {
             return brokerId;
         }
 
-        public void setBrokerId(String brokerId) {
-            this.brokerId = brokerId;
-        }
-
-        public String getQuantity() {
+        public long getQuantity() {
             return quantity;
         }
 
-        public void setQuantity(String quantity) {
-            this.quantity = quantity;
+        public String getOrderStatus() {
+            return orderStatus.get();
         }
 
-        public String getOrderStatus() {
+        public ObjectProperty<String> orderStatusProperty() {
             return orderStatus;
         }
 
-        public void setOrderStatus(String orderStatus) {
-            this.orderStatus = orderStatus;
+        public long getFilledQuantity() {
+            return filledQuantity.get();
         }
 
-        public String getFilledQuantity() {
+        public LongProperty filledQuantityProperty() {
             return filledQuantity;
         }
 
-        public void setFilledQuantity(String filledQuantity) {
-            this.filledQuantity = filledQuantity;
+        public long getRemainingQuantity() {
+            return remainingQuantity.get();
         }
 
-        public String getRemainingQuantity() {
+        public LongProperty remainingQuantityProperty() {
             return remainingQuantity;
         }
 
-        public void setRemainingQuantity(String remainingQuantity) {
-            this.remainingQuantity = remainingQuantity;
-        }
-
-        public String getLimitPrice() {
+        public double getLimitPrice() {
             return limitPrice;
         }
 
-        public void setLimitPrice(String limitPrice) {
-            this.limitPrice = limitPrice;
-        }
-
         public String getSymbol() {
-            return symbol;
+            return SymbolDictionary.SYMBOLS.name(symbol);
         }
 
-        public void setSymbol(String symbol) {
-            this.symbol = symbol;
+        public String getExchange() {
+            return SymbolDictionary.EXCHANGES.name(exchange);
         }
 
-        public String getExchange() {
-            return exchange;
+        // SymbolDictionary ids, for the totals
+        int client() {
+            return client;
         }
 
-        public void setExchange(String exchange) {
-            this.exchange = exchange;
+        int symbol() {
+            return symbol;
         }
     }
 
-    private TableView getExecutionTableView() {
-
-        TableView tableView = new TableView();
-
-        TableColumn<DepthData, String> column1 = new TableColumn<>("OrderId");
-        column1.setCellValueFactory(new PropertyValueFactory<>("orderId"));
-
-        TableColumn<DepthData, String> column2 = new TableColumn<>("ClientId");
-        column2.setCellValueFactory(new PropertyValueFactory<>("clientId"));
-
-        TableColumn<DepthData, String> column3 = new TableColumn<>("ClientName");
-        column3.setCellValueFactory(new PropertyValueFactory<>("clientName"));
-
-        TableColumn<DepthData, String> column4 = new TableColumn<>("Ordertime");
-        column4.setCellValueFactory(new PropertyValueFactory<>("ordertime"));
-
-        TableColumn<DepthData, String> column5 = new TableColumn<>("Side");
-        column5.setCellValueFactory(new PropertyValueFactory<>("side"));
-
-        TableColumn<DepthData, String> column6 = new TableColumn<>("BrokerId");
-        column6.setCellValueFactory(new PropertyValueFactory<>("brokerId"));
-
-        TableColumn<DepthData, String> column7 = new TableColumn<>("Quantity");
-        column7.setCellValueFactory(new PropertyValueFactory<>("quantity"));
-
-        TableColumn<DepthData, String> column8 = new TableColumn<>("OrderStatus");
-        column8.setCellValueFactory(new PropertyValueFactory<>("orderStatus"));
-
-        TableColumn<DepthData, String> column9 = new TableColumn<>("FilledQuantity");
-        column9.setCellValueFactory(new PropertyValueFactory<>("filledQuantity"));
-
-        TableColumn<DepthData, String> column10 = new TableColumn<>("RemainingQuantity");
-        column10.setCellValueFactory(new PropertyValueFactory<>("remainingQuantity"));
-
-        TableColumn<DepthData, String> column11 = new TableColumn<>("LimitPrice");
-        column11.setCellValueFactory(new PropertyValueFactory<>("limitPrice"));
-
-        TableColumn<DepthData, String> column12 = new TableColumn<>("Symbol");
-        column12.setCellValueFactory(new PropertyValueFactory<>("symbol"));
-
-        TableColumn<DepthData, String> column13 = new TableColumn<>("Exchange");
-        column13.setCellValueFactory(new PropertyValueFactory<>("exchange"));
-
-        tableView.getColumns().add(column1);
-        tableView.getColumns().add(column2);
-        tableView.getColumns().add(column3);
-        tableView.getColumns().add(column4);
-        tableView.getColumns().add(column5);
-        tableView.getColumns().add(column6);
-        tableView.getColumns().add(column7);
-        tableView.getColumns().add(column8);
-        tableView.getColumns().add(column9);
-        tableView.getColumns().add(column10);
-        tableView.getColumns().add(column11);
-        tableView.getColumns().add(column12);
-        tableView.getColumns().add(column13);
+    private TableView<OrderExecutionView> getExecutionTableView() {
+        TableView<OrderExecutionView> tableView = new TableView<>();
+        tableView.getColumns().add(Columns.column("OrderId", OrderExecutionView::getOrderId));
+        tableView.getColumns().add(Columns.column("ClientId", OrderExecutionView::getClientId));
+        tableView.getColumns().add(Columns.column("ClientName", OrderExecutionView::getClientName));
+        tableView.getColumns().add(Columns.column("Ordertime", OrderExecutionView::getOrdertime));
+        tableView.getColumns().add(Columns.column("Side", OrderExecutionView::getSide));
+        tableView.getColumns().add(Columns.column("BrokerId", OrderExecutionView::getBrokerId));
+        tableView.getColumns().add(Columns.column("Quantity", OrderExecutionView::getQuantity));
+        tableView.getColumns().add(Columns.observable("OrderStatus", OrderExecutionView::orderStatusProperty));
+        tableView.getColumns().add(Columns.observable("FilledQuantity", OrderExecutionView::filledQuantityProperty));
+        tableView.getColumns().add(Columns.observable("RemainingQuantity", OrderExecutionView::remainingQuantityProperty));
+        tableView.getColumns().add(Columns.column("LimitPrice", OrderExecutionView::getLimitPrice));
+        tableView.getColumns().add(Columns.column("Symbol", OrderExecutionView::getSymbol));
+        tableView.getColumns().add(Columns.column("Exchange", OrderExecutionView::getExchange));
         return tableView;
     }
 
-    public static class OrderExecutionsContainer {
-        private Lock lockObject = new ReentrantLock();
-        private Order order;
-        private Order lastOrder;
-
-        public OrderExecutionsContainer() {
-            this.order = new Order();
-            this.lastOrder = order;
-        }
+    private FrameScheduler.RenderTask getRenderTaskForOrderExecution(Stage executionStatge, List<OrderExecutionView> rows,
+                                                                    OrderExecutionsContainer orderExecutionsContainer, OrderIndex orderIndex) {
+        // only an order's first event adds a row, the index updates the row in place for the rest
+        FrameBatch<Order, OrderExecutionView> batch = FrameBatch.fromSystemProperties(order -> order.getExchange() == null ? null
+                : orderIndex.apply(order));
+        FrameScheduler.RenderTask renderTask = new FrameScheduler.RenderTask() {
+            @Override
+            public boolean hasWork() {
+                return orderExecutionsContainer.getOrders().size() > 0;
+            }
 
-        public Lock getLockObject() {
-            return lockObject;
-        }
+            @Override
+            public void drain(long now, long deadline) {
+                batch.drain(orderExecutionsContainer.getOrders(), rows, deadline);
+            }
 
-        public Order getOrder() {
-            return order;
-        }
+            @Override
+            public void render(long now) {
+                EventRingBuffer<Order> orders = orderExecutionsContainer.getOrders();
+                executionStatge.setTitle("Orders for " + SymbolDictionary.SYMBOLS.canonical(orderExecutionsContainer.getOrder().getSymbol())
+                        + ", " + orderIndex.size() + " orders" + droppedSuffix(orders));
+            }
+        };
+        return renderTask;
+    }
 
-        public void setOrder(Order order) {
-            this.order = order;
-        }
+    // one text field per indexed column; typing filters the blotter to exact matches, empty shows everything.
+    // Each filter change rebuilds the view, so it applies once typing pauses for -Dmd.filter.debounce.millis
+    // (default 300), or at once on Enter, rather than on every keystroke
+    private <R> HBox filterBar(IndexedBlotterView<R> view) {
+        Duration debounce = Duration.millis(Long.getLong("md.filter.debounce.millis", 300));
+        HBox bar = new HBox(4);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        for (String field : view.getFields()) {
+            TextField value = new TextField();
+            value.setPromptText(field);
+            value.setPrefColumnCount(8);
+            PauseTransition pause = new PauseTransition(debounce);
+            pause.setOnFinished(event -> view.setFilter(field, value.getText().trim()));
+            value.textProperty().addListener((observable, oldValue, newValue) -> pause.playFromStart());
+            value.setOnAction(event -> {
+                pause.stop();
+                view.setFilter(field, value.getText().trim());
+            });
+            bar.getChildren().add(value);
+        }
+        return bar;
+    }
 
-        public Order getLastOrder() {
-            return lastOrder;
-        }
+    // alerts setup
+
+    private void viewAlerts(Stage alertStage) {
+        TableView<FiredAlert> tableView = new TableView<>();
+        tableView.getColumns().add(Columns.column("Time", FiredAlert::getTime));
+        tableView.getColumns().add(Columns.column("Rule", FiredAlert::getRule));
+        tableView.getColumns().add(Columns.column("Symbol", FiredAlert::getSymbol));
+        tableView.getColumns().add(Columns.column("Value", FiredAlert::getValue, value -> Double.isNaN(value) ? "" : String.valueOf(value)));
+        // rough retained heap per alert row; rule names and symbols are shared Strings
+        BoundedObservableList<FiredAlert> alerts = BoundedObservableList.fromSystemProperties(40);
+        tableView.setItems(alerts);
+        alertStage.setX(1100);
+        alertStage.setY(100);
+        alertStage.setHeight(400);
+        alertStage.setWidth(500);
+        alertStage.setScene(new Scene(new VBox(tableView)));
+        VBox.setVgrow(tableView, Priority.ALWAYS);
+
+        FrameBatch<FiredAlert, FiredAlert> batch = FrameBatch.fromSystemProperties(alert -> alert);
+        frameScheduler.register(new FrameScheduler.RenderTask() {
+            private long fired;
 
-        public void setLastOrder(Order lastOrder) {
-            this.lastOrder = lastOrder;
-        }
-    }
-    public static class OrderExecutionsUpdater extends Thread {
-        private OrderExecutionsContainer orderExecutionsContainer;
-        private KafkaConsumer<String, String> kafkaConsumer;
-        private EMSBroker emsBroker;
-        private boolean kafka;
-
-        public OrderExecutionsUpdater(OrderExecutionsContainer tradeContainer, boolean kafka) {
-            this.orderExecutionsContainer = tradeContainer;
-            this.kafka = kafka;
-            try {
-                if (!kafka) {
-                    emsBroker = new EMSBroker("ashish-VirtualBox:7222", null, null);
-                    emsBroker.createConsumer("exsim.nse.executions", true);
-                } else {
-                    this.kafkaConsumer = new KafkaBroker("ashish-VirtualBox:9093,ashish-VirtualBox:9094,ashish-VirtualBox:9095").createConsumer(null);
-                    this.kafkaConsumer.subscribe(Arrays.asList("exsim.nse.executions"));
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
+            @Override
+            public boolean hasWork() {
+                return alertRules.getPrices().getAlerts().size() > 0 || alertRules.getQuotes().getAlerts().size() > 0
+                        || alertRules.getOrders().getAlerts().size() > 0;
             }
-        }
 
-        @Override
-        public void run() {
-            while (true) {
-                orderExecutionsContainer.getLockObject().lock();
-                try {
-                    if (!kafka) {
-                        Message msg = emsBroker.consumer().receive();
-                        if (msg == null)
-                            return;
-                        if (msg instanceof TextMessage) {
-                            TextMessage message = (TextMessage) msg;
-                            byte[] decoded = Base64.getDecoder().decode(message.getText());
-                            Order order = deSerealizeAvroHttpRequestJSON(decoded);
-                            orderExecutionsContainer.setOrder(order);
-                        }
-                    } else {
-                        ConsumerRecords<String, String> records = kafkaConsumer.poll(java.time.Duration.ofMillis(10));
-                        for (ConsumerRecord<String, String> record : records) {
-                            String symbol = record.key();
-                            String data = record.value();
-                            byte[] decoded = Base64.getDecoder().decode(data);
-                            {
-                                Order order = deSerealizeAvroHttpRequestJSON(decoded);
-                                orderExecutionsContainer.setOrder(order);
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    orderExecutionsContainer.getLockObject().unlock();
-                }
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                }
+            @Override
+            public void drain(long now, long deadline) {
+                fired += batch.drain(alertRules.getPrices().getAlerts(), alerts, deadline);
+                fired += batch.drain(alertRules.getQuotes().getAlerts(), alerts, deadline);
+                fired += batch.drain(alertRules.getOrders().getAlerts(), alerts, deadline);
             }
-        }
 
-        public Order deSerealizeAvroHttpRequestJSON(byte[] data) {
-            DatumReader<Order> reader
-                    = new SpecificDatumReader<>(Order.class);
-            Decoder decoder = null;
-            try {
-                decoder = DecoderFactory.get().jsonDecoder(Order.getClassSchema(), new String(data));
-                return reader.read(null, decoder);
-            } catch (IOException e) {
-                //logger.error("Deserialization error:" + e.getMessage());
+            @Override
+            public void render(long now) {
+                alertStage.setTitle("Alerts, " + fired + " fired from " + alertRules.size() + " rules");
             }
-            return null;
-        }
+        }, alertStage);
+        alertStage.setTitle("Alerts, " + alertRules.size() + " rules");
+        alertStage.show();
     }
 
-    private AnimationTimer getAnimationTimerForOrderExecution(Stage executionStatge, TableView tableView, OrderExecutionsContainer orderExecutionsContainer) {
-        AnimationTimer animationTimer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                if (orderExecutionsContainer.getLockObject().tryLock()) {
-                    try {
-                        executionStatge.setTitle("Orders for " + String.valueOf(orderExecutionsContainer.getOrder().getSymbol()));
-                        Order order = orderExecutionsContainer.getOrder();
-                        Order lastOrder = orderExecutionsContainer.getLastOrder();
-                        if (order != null && order.getExchange() != null && !order.equals(lastOrder)) {
-                            OrderExecutionView orderExecutionView = new OrderExecutionView();
-                            orderExecutionView.setOrderId(order.getOrderId().toString());
-                            orderExecutionView.setClientId(order.getClientId().toString());
-                            orderExecutionView.setOrderStatus(order.getOrderStatus().toString());
-                            orderExecutionView.setExchange(order.getExchange().toString());
-                            orderExecutionView.setOrdertime(order.getOrdertime().toString());
-                            orderExecutionView.setBrokerId(order.getBrokerId().toString());
-                            orderExecutionView.setClientName(order.getClientName().toString());
-                            orderExecutionView.setFilledQuantity(order.getFilledQuantity().toString());
-                            orderExecutionView.setQuantity(order.getQuantity().toString());
-                            orderExecutionView.setRemainingQuantity(order.getRemainingQuantity().toString());
-                            orderExecutionView.setLimitPrice(order.getLimitPrice().toString());
-                            orderExecutionView.setSide(order.getSide().toString());
-                            orderExecutionView.setSymbol(order.getSymbol().toString());
-                            orderExecutionView.setExchange(order.getExchange().toString());
-                            tableView.getItems().add(orderExecutionView);
-                            orderExecutionsContainer.setLastOrder(order);
-                        }
-
-                    } finally {
-                        orderExecutionsContainer.getLockObject().unlock();
-                    }
-                }
-            }
-        };
-        return animationTimer;
+    private String droppedSuffix(EventRingBuffer<?> events) {
+        long dropped = events.getDropped();
+        return dropped == 0 ? "" : " (dropped " + dropped + " in " + events.getOverflows() + " overflows)";
     }
 
     private void addWindowResizeListener(Stage stage, Rectangle background) {
@@ -1464,5 +1167,4 @@ public class MarketDataViewer extends Application {
         stage.heightProperty().addListener(stageSizeListener);
     }
 
-
 }
@@ -0,0 +1,168 @@
+package com.ashish.md.viewer;
+
+import com.ashish.marketdata.avro.MarketPrice;
+import com.ashish.md.pipeline.MarketAnalytics;
+import com.ashish.md.pipeline.SymbolAnalytics;
+import com.ashish.md.pipeline.SymbolDictionary;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+
+// Every instrument's latest MarketPrice, one row per symbol, fields kept in primitive columns indexed by row.
+// Only touched on the FX thread: the market price timer feeds it from the conflation store.
+// The rolling analytics columns are read from MarketAnalytics, refreshed at most every ANALYTICS_REFRESH_NANOS.
+public class MarketWatch {
+
+    private static final long ANALYTICS_REFRESH_NANOS = 250_000_000L;
+
+    // symbol id -> row + 1 (0: no row yet)
+    private int[] rowBySymbol = new int[256];
+    private final ObservableList<Row> rows = FXCollections.observableArrayList();
+    private int size;
+    // SymbolDictionary ids; the cells show their canonical Strings
+    private int[] symbol = new int[256];
+    private int[] exchange = new int[256];
+    private double[] open = new double[256];
+    private double[] high = new double[256];
+    private double[] low = new double[256];
+    private double[] lastPrice = new double[256];
+    private double[] lowerCircuit = new double[256];
+    private double[] upperCircuit = new double[256];
+    private long[] volume = new long[256];
+    private long[] lastTradeSize = new long[256];
+    private long[] lastTradeTime = new long[256];
+    // looked up once a symbol has traded or been quoted
+    private SymbolAnalytics[] analytics = new SymbolAnalytics[256];
+    private final MarketAnalytics marketAnalytics;
+    private long shownAnalyticsVersion;
+    private long analyticsShownAt;
+    private TableView<Row> tableView;
+    private boolean dirty;
+
+    public MarketWatch(MarketAnalytics marketAnalytics) {
+        this.marketAnalytics = marketAnalytics;
+    }
+
+    // id is the symbol's SymbolDictionary.SYMBOLS id
+    public void update(int id, MarketPrice marketPrice) {
+        if (id < 0)
+            return;
+        if (id >= rowBySymbol.length)
+            rowBySymbol = Arrays.copyOf(rowBySymbol, Math.max(id + 1, rowBySymbol.length * 2));
+        int row = rowBySymbol[id] - 1;
+        if (row < 0) {
+            row = size++;
+            ensureCapacity(size);
+            symbol[row] = id;
+            rowBySymbol[id] = row + 1;
+            rows.add(new Row(row));
+        }
+        exchange[row] = SymbolDictionary.EXCHANGES.id(marketPrice.getExchange());
+        open[row] = marketPrice.getOpen();
+        high[row] = marketPrice.getHigh();
+        low[row] = marketPrice.getLow();
+        lastPrice[row] = marketPrice.getLastPrice();
+        lowerCircuit[row] = marketPrice.getLowerCircuit();
+        upperCircuit[row] = marketPrice.getUperCircuit();
+        volume[row] = marketPrice.getVolume();
+        lastTradeSize[row] = marketPrice.getLastTradeSize();
+        lastTradeTime[row] = marketPrice.getLastTradeTime();
+        dirty = true;
+    }
+
+    // true when the analytics moved and the last refresh is old enough for another
+    public boolean hasAnalyticsUpdate() {
+        return marketAnalytics.getVersion() != shownAnalyticsVersion && System.nanoTime() - analyticsShownAt >= ANALYTICS_REFRESH_NANOS;
+    }
+
+    // once per frame after the updates: re-sort if the user sorted a column, then repaint the visible rows
+    public void endUpdate() {
+        if (hasAnalyticsUpdate())
+            dirty = true;
+        if (!dirty || tableView == null)
+            return;
+        dirty = false;
+        shownAnalyticsVersion = marketAnalytics.getVersion();
+        analyticsShownAt = System.nanoTime();
+        if (!tableView.getSortOrder().isEmpty())
+            tableView.sort();
+        tableView.refresh();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TableView<Row> createTableView() {
+        tableView = new TableView<>(rows);
+        tableView.getColumns().add(column("Symbol", row -> SymbolDictionary.SYMBOLS.name(symbol[row])));
+        tableView.getColumns().add(column("Exchange", row -> SymbolDictionary.EXCHANGES.name(exchange[row])));
+        tableView.getColumns().add(column("Last", row -> lastPrice[row]));
+        tableView.getColumns().add(column("Open", row -> open[row]));
+        tableView.getColumns().add(column("High", row -> high[row]));
+        tableView.getColumns().add(column("Low", row -> low[row]));
+        tableView.getColumns().add(column("Volume", row -> volume[row]));
+        tableView.getColumns().add(column("LastTradeSize", row -> lastTradeSize[row]));
+        tableView.getColumns().add(column("LastTradeTime", row -> lastTradeTime[row]));
+        tableView.getColumns().add(column("LowerCircuit", row -> lowerCircuit[row]));
+        tableView.getColumns().add(column("UpperCircuit", row -> upperCircuit[row]));
+        tableView.getColumns().add(column("VWAP", row -> analytic(row, SymbolAnalytics::getVwap)));
+        tableView.getColumns().add(column("Mid", row -> analytic(row, SymbolAnalytics::getMid)));
+        tableView.getColumns().add(column("TWSpread", row -> analytic(row, SymbolAnalytics::getTimeWeightedSpread)));
+        tableView.getColumns().add(column("Imbalance", row -> analytic(row, SymbolAnalytics::getImbalance)));
+        tableView.getColumns().add(column("Trades/s", row -> analytic(row, SymbolAnalytics::getTradeRate)));
+        return tableView;
+    }
+
+    // values are read from the columns only for cells the TableView actually shows
+    private <T extends Comparable<T>> TableColumn<Row, T> column(String name, IntFunction<T> value) {
+        TableColumn<Row, T> column = new TableColumn<>(name);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue().getIndex())));
+        return column;
+    }
+
+    // null, an empty cell, while the symbol has no data in the window
+    private Double analytic(int row, ToDoubleFunction<SymbolAnalytics> statistic) {
+        if (analytics[row] == null)
+            analytics[row] = marketAnalytics.get(symbol[row]);
+        double value = analytics[row] != null ? statistic.applyAsDouble(analytics[row]) : Double.NaN;
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= symbol.length)
+            return;
+        int length = symbol.length * 2;
+        symbol = Arrays.copyOf(symbol, length);
+        exchange = Arrays.copyOf(exchange, length);
+        open = Arrays.copyOf(open, length);
+        high = Arrays.copyOf(high, length);
+        low = Arrays.copyOf(low, length);
+        lastPrice = Arrays.copyOf(lastPrice, length);
+        lowerCircuit = Arrays.copyOf(lowerCircuit, length);
+        upperCircuit = Arrays.copyOf(upperCircuit, length);
+        volume = Arrays.copyOf(volume, length);
+        lastTradeSize = Arrays.copyOf(lastTradeSize, length);
+        lastTradeTime = Arrays.copyOf(lastTradeTime, length);
+        analytics = Arrays.copyOf(analytics, length);
+    }
+
+    // a row is only a handle on its position in the columns; sorting reorders handles, the data never moves
+    public static class Row {
+        private final int index;
+
+        Row(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ashish.md.viewer;
+
+import com.ashish.marketdata.avro.Order;
+import com.ashish.md.pipeline.SymbolDictionary;
+import com.ashish.md.viewer.MarketDataViewer.OrderExecutionView;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Executions blotter model keyed by orderId: the first event of an order becomes its row, later events
+// (partial fills, fill, cancel) update that row in place, so the blotter grows with orders, not with fills.
+// Keeps per-client and per-symbol totals in step. The totals cover the orders the blotter still holds: an order the
+// bounded blotter evicts takes its counts with it, so its next event starts it over instead of counting it twice.
+// FX thread only.
+public class OrderIndex {
+
+    private final Map<String, OrderExecutionView> byOrderId = new HashMap<>();
+    private final OrderTotals byClient = new OrderTotals("Client", SymbolDictionary.CLIENTS);
+    private final OrderTotals bySymbol = new OrderTotals("Symbol", SymbolDictionary.SYMBOLS);
+    private final IndexedBlotterView<OrderExecutionView> view;
+    private final StringInterner strings;
+
+    // rows is the blotter's bounded list, view the indexed view the table shows over it
+    public OrderIndex(ObservableList<OrderExecutionView> rows, IndexedBlotterView<OrderExecutionView> view, StringInterner strings) {
+        this.view = view;
+        this.strings = strings;
+        // rows the bounded blotter evicts leave the index and the totals too; a later event for them starts a new row
+        rows.addListener((ListChangeListener<OrderExecutionView>) change -> {
+            while (change.next()) {
+                for (OrderExecutionView removed : change.getRemoved()) {
+                    if (byOrderId.remove(removed.getOrderId(), removed))
+                        addTotals(removed, -1, -1);
+                }
+            }
+        });
+    }
+
+    // the row for an order seen for the first time, null when its existing row was updated in place
+    public OrderExecutionView apply(Order order) {
+        String orderId = String.valueOf(order.getOrderId());
+        OrderExecutionView row = byOrderId.get(orderId);
+        if (row == null) {
+            row = new OrderExecutionView(order, strings);
+            byOrderId.put(row.getOrderId(), row);
+            addTotals(row, 1, 1);
+            return row;
+        }
+        addTotals(row, 0, -1);
+        // the view re-files the row, its status bucket and sort position may change
+        OrderExecutionView existing = row;
+        view.update(existing, () -> existing.update(order));
+        addTotals(row, 0, 1);
+        return null;
+    }
+
+    public int size() {
+        return byOrderId.size();
+    }
+
+    public OrderTotals getByClient() {
+        return byClient;
+    }
+
+    public OrderTotals getBySymbol() {
+        return bySymbol;
+    }
+
+    // sign -1 takes a row's current fill state out of the totals before it changes, +1 puts it back;
+    // orders is 1 when the row arrives, -1 when it is evicted and 0 otherwise
+    private void addTotals(OrderExecutionView row, long orders, int sign) {
+        long quantity = orders * row.getQuantity();
+        long filled = sign * row.getFilledQuantity();
+        long remaining = sign * row.getRemainingQuantity();
+        byClient.add(row.client(), orders, quantity, filled, remaining);
+        bySymbol.add(row.symbol(), orders, quantity, filled, remaining);
+    }
+}
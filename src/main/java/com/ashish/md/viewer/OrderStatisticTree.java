@@ -0,0 +1,137 @@
+package com.ashish.md.viewer;
+
+import java.util.Comparator;
+
+// Sorted sequence with O(log n) insert, remove, get(index) and rank: a treap whose nodes carry subtree sizes.
+// Rows that compare equal are kept in arrival order by the sequence number each one is inserted with, so every
+// row has exactly one position. A row's sort key must not change while it is in the tree. Single-threaded.
+class OrderStatisticTree<R> {
+
+    private static final class Node<R> {
+        final R row;
+        final long sequence;
+        final int priority;
+        int size = 1;
+        Node<R> left;
+        Node<R> right;
+
+        Node(R row, long sequence, int priority) {
+            this.row = row;
+            this.sequence = sequence;
+            this.priority = priority;
+        }
+    }
+
+    // null keeps rows in arrival order
+    private final Comparator<? super R> comparator;
+    private Node<R> root;
+    private int seed = 0x2545F491;
+    // results of the last split
+    private Node<R> splitLeft;
+    private Node<R> splitRight;
+
+    OrderStatisticTree(Comparator<? super R> comparator) {
+        this.comparator = comparator;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    R get(int index) {
+        Node<R> node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.row;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        throw new IndexOutOfBoundsException("Index: " + index);
+    }
+
+    // the position the row now holds
+    int insert(R row, long sequence) {
+        split(root, row, sequence, false);
+        Node<R> before = splitLeft;
+        Node<R> after = splitRight;
+        int rank = size(before);
+        root = merge(merge(before, new Node<>(row, sequence, nextPriority())), after);
+        return rank;
+    }
+
+    // the position the row held, -1 if it was not in the tree
+    int remove(R row, long sequence) {
+        split(root, row, sequence, false);
+        Node<R> before = splitLeft;
+        split(splitRight, row, sequence, true);
+        Node<R> match = splitLeft;
+        Node<R> after = splitRight;
+        // the rank must be read before the merge, which can grow before's size by after's
+        int rank = size(before);
+        root = merge(before, after);
+        return match != null ? rank : -1;
+    }
+
+    // splits node into the rows ordered before (row, sequence), or also the row itself when inclusive, and the rest
+    private void split(Node<R> node, R row, long sequence, boolean inclusive) {
+        if (node == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+        int compared = compare(row, sequence, node);
+        if (inclusive ? compared >= 0 : compared > 0) {
+            split(node.right, row, sequence, inclusive);
+            node.right = splitLeft;
+            update(node);
+            splitLeft = node;
+        } else {
+            split(node.left, row, sequence, inclusive);
+            node.left = splitRight;
+            update(node);
+            splitRight = node;
+        }
+    }
+
+    // every row of a orders before every row of b
+    private Node<R> merge(Node<R> a, Node<R> b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private int compare(R row, long sequence, Node<R> node) {
+        int compared = comparator != null ? comparator.compare(row, node.row) : 0;
+        return compared != 0 ? compared : Long.compare(sequence, node.sequence);
+    }
+
+    private int nextPriority() {
+        // xorshift: cheap and good enough to keep the treap balanced
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
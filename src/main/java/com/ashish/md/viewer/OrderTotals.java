@@ -0,0 +1,95 @@
+package com.ashish.md.viewer;
+
+import com.ashish.md.pipeline.SymbolDictionary;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TableView;
+
+import java.util.Arrays;
+
+// Running order totals per key (a client or a symbol), indexed by the key's id in a SymbolDictionary: one row per
+// key, updated in place by adding the difference an order event made. FX thread only.
+public class OrderTotals {
+
+    private final String keyName;
+    private final SymbolDictionary keys;
+    // by key id
+    private Total[] totals = new Total[0];
+    private final ObservableList<Total> rows = FXCollections.observableArrayList();
+
+    public OrderTotals(String keyName, SymbolDictionary keys) {
+        this.keyName = keyName;
+        this.keys = keys;
+    }
+
+    // key is an id of this totals' dictionary; an order without one (-1) is not counted
+    public void add(int key, long orders, long quantity, long filled, long remaining) {
+        if (key < 0)
+            return;
+        if (key >= totals.length)
+            totals = Arrays.copyOf(totals, Math.max(key + 1, totals.length * 2));
+        Total total = totals[key];
+        if (total == null) {
+            total = new Total(keys.name(key));
+            totals[key] = total;
+            rows.add(total);
+        }
+        total.orders.set(total.orders.get() + orders);
+        total.quantity.set(total.quantity.get() + quantity);
+        total.filled.set(total.filled.get() + filled);
+        total.remaining.set(total.remaining.get() + remaining);
+    }
+
+    public Total get(String key) {
+        int id = keys.find(key);
+        return id >= 0 && id < totals.length ? totals[id] : null;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public TableView<Total> createTableView() {
+        TableView<Total> tableView = new TableView<>(rows);
+        tableView.getColumns().add(Columns.column(keyName, Total::getKey));
+        tableView.getColumns().add(Columns.observable("Orders", Total::ordersProperty));
+        tableView.getColumns().add(Columns.observable("Quantity", Total::quantityProperty));
+        tableView.getColumns().add(Columns.observable("Filled", Total::filledProperty));
+        tableView.getColumns().add(Columns.observable("Remaining", Total::remainingProperty));
+        return tableView;
+    }
+
+    public static class Total {
+        private final String key;
+        private final LongProperty orders = new SimpleLongProperty(this, "orders");
+        private final LongProperty quantity = new SimpleLongProperty(this, "quantity");
+        private final LongProperty filled = new SimpleLongProperty(this, "filled");
+        private final LongProperty remaining = new SimpleLongProperty(this, "remaining");
+
+        Total(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public LongProperty ordersProperty() {
+            return orders;
+        }
+
+        public LongProperty quantityProperty() {
+            return quantity;
+        }
+
+        public LongProperty filledProperty() {
+            return filled;
+        }
+
+        public LongProperty remainingProperty() {
+            return remaining;
+        }
+    }
+}
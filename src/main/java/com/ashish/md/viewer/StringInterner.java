@@ -0,0 +1,44 @@
+package com.ashish.md.viewer;
+
+import org.apache.avro.util.Utf8;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Canonical Strings for low-cardinality blotter fields (clients, sides, statuses) so a blotter of
+// a hundred thousand rows holds a handful of Strings instead of one per row per field.
+// Avro Utf8 values are looked up by their bytes, so a repeated value costs no decoding. Symbols and exchanges
+// go through the shared SymbolDictionary instead. FX thread only.
+class StringInterner {
+
+    private final int limit;
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<Utf8, String> utf8s = new HashMap<>();
+
+    StringInterner(int limit) {
+        this.limit = limit;
+    }
+
+    String intern(CharSequence value) {
+        if (value == null)
+            return null;
+        if (value instanceof Utf8) {
+            String canonical = utf8s.get(value);
+            if (canonical == null) {
+                canonical = intern(value.toString());
+                // copy the key: the decoder may hand out the same Utf8 again with other bytes
+                if (utf8s.size() < limit)
+                    utf8s.put(new Utf8((Utf8) value), canonical);
+            }
+            return canonical;
+        }
+        String text = value.toString();
+        String canonical = strings.get(text);
+        if (canonical != null)
+            return canonical;
+        // past the limit the field is not low-cardinality after all; stop growing and keep the copy
+        if (strings.size() < limit)
+            strings.put(text, text);
+        return text;
+    }
+}
@@ -0,0 +1,50 @@
+package com.ashish.md.viewer;
+
+import javafx.scene.control.Label;
+
+// Label that remembers the value it shows and only reformats and calls setText when that value changes,
+// so an unchanged field costs no String and no CSS/layout pass.
+class TrackedLabel {
+
+    private final Label label;
+    private boolean shown;
+    private long lastBits;
+    private Object lastValue;
+
+    TrackedLabel(Label label) {
+        this.label = label;
+    }
+
+    // true when the label text changed
+    boolean show(double value) {
+        long bits = Double.doubleToLongBits(value);
+        if (shown && lastValue == null && bits == lastBits)
+            return false;
+        remember(bits, null);
+        label.setText(String.valueOf(value));
+        return true;
+    }
+
+    boolean show(long value) {
+        if (shown && lastValue == null && value == lastBits)
+            return false;
+        remember(value, null);
+        label.setText(String.valueOf(value));
+        return true;
+    }
+
+    // Avro strings arrive as Utf8; Utf8.equals compares bytes, so an unchanged symbol is not turned into a String
+    boolean show(CharSequence value) {
+        if (shown && value != null && value.equals(lastValue))
+            return false;
+        remember(0, value);
+        label.setText(String.valueOf(value));
+        return true;
+    }
+
+    private void remember(long bits, Object value) {
+        shown = true;
+        lastBits = bits;
+        lastValue = value;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ashish.md.codec;
+
+import com.ashish.marketdata.avro.Trade;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AvroRecordDecoderTest {
+
+    @Test
+    public void decodesBase64WithEitherPaddingOrNone() throws IOException {
+        AvroRecordDecoder<Trade> decoder = new AvroRecordDecoder<>(Trade.class, Trade.getClassSchema(), WireFormat.JSON);
+        boolean[] padding = new boolean[3];
+        // the symbol length walks the payload through every length mod 3: no padding, "==" and "="
+        for (String symbol : new String[]{"A", "AB", "ABC", "ABCD", "ABCDE", "ABCDEF"}) {
+            String text = Base64.getEncoder().encodeToString(json(trade(symbol)));
+            padding[text.length() - text.replace("=", "").length()] = true;
+            assertEquals(symbol, decoder.decode(text).getSymbol().toString());
+            assertEquals(symbol, decoder.decode(text.replace("=", "")).getSymbol().toString());
+            assertEquals(symbol, decoder.decode(text.getBytes(StandardCharsets.US_ASCII)).getSymbol().toString());
+        }
+        assertEquals("[true, true, true]", Arrays.toString(padding));
+        assertEquals(0, decoder.getDropped());
+    }
+
+    @Test
+    public void dropsIllegalBase64AndKeepsDecoding() throws IOException {
+        AvroRecordDecoder<Trade> decoder = new AvroRecordDecoder<>(Trade.class, Trade.getClassSchema(), WireFormat.JSON);
+        String text = Base64.getEncoder().encodeToString(json(trade("INFY")));
+        // URL-safe alphabet, a space, a non-ASCII char and padding in the middle are all outside the basic alphabet
+        assertNull(decoder.decode(text.substring(0, 8) + "-_" + text.substring(8)));
+        assertNull(decoder.decode(text.substring(0, 8) + " " + text.substring(8)));
+        assertNull(decoder.decode(text.substring(0, 8) + "\u00e9" + text.substring(8)));
+        assertNull(decoder.decode("=" + text));
+        assertEquals(4, decoder.getDropped());
+        assertEquals("INFY", decoder.decode(text).getSymbol().toString());
+    }
+
+    @Test
+    public void dropsATruncatedRecord() throws IOException {
+        AvroRecordDecoder<Trade> decoder = new AvroRecordDecoder<>(Trade.class, Trade.getClassSchema(), WireFormat.BINARY);
+        byte[] payload = binary(trade("TCS"));
+        assertNull(decoder.decode(Arrays.copyOf(payload, payload.length - 3)));
+        assertEquals(1, decoder.getDropped());
+        Trade trade = decoder.decode(payload);
+        assertEquals("TCS", trade.getSymbol().toString());
+        assertEquals(101.5, trade.getPrice(), 0);
+    }
+
+    @Test
+    public void textMessagesCarryBase64OfEitherEncoding() throws IOException {
+        AvroRecordDecoder<Trade> decoder = new AvroRecordDecoder<>(Trade.class, Trade.getClassSchema(), WireFormat.BINARY);
+        Trade trade = decoder.decode(Base64.getEncoder().encodeToString(binary(trade("WIPRO"))));
+        assertEquals("WIPRO", trade.getSymbol().toString());
+        assertEquals(25L, (long) trade.getSize());
+    }
+
+    private static Trade trade(String symbol) {
+        return new Trade(symbol, "NSE", 1_000L, 101.5, 25L);
+    }
+
+    private static byte[] json(Trade trade) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Encoder encoder = EncoderFactory.get().jsonEncoder(Trade.getClassSchema(), out);
+        new SpecificDatumWriter<>(Trade.class).write(trade, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private static byte[] binary(Trade trade) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new SpecificDatumWriter<>(Trade.class).write(trade, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,180 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.MarketPrice;
+import com.ashish.marketdata.avro.Order;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AlertRulesTest {
+
+    private static final int SYMBOL = SymbolDictionary.SYMBOLS.id("ALERTS");
+
+    @Test
+    public void eachOperatorMatchesItsSideOfTheOperand() {
+        // orders are events, so every matching order fires
+        assertFires(1, "<");
+        assertFires(2, "<=");
+        assertFires(1, ">");
+        assertFires(2, ">=");
+        assertFires(1, "==");
+        assertFires(2, "!=");
+    }
+
+    @Test
+    public void aNaNFieldMatchesNoOperator() {
+        // a missing field reads as NaN too
+        for (String op : new String[]{"<", "<=", ">", ">=", "==", "!="}) {
+            RuleBook<Order> orders = compile("limit: * order.limitPrice " + op + " 100").getOrders();
+            orders.evaluate(SYMBOL, limit(Double.NaN));
+            RuleBook<MarketPrice> prices = compile("band: * price.lastPrice " + op + " price.upperCircuit").getPrices();
+            prices.evaluate(SYMBOL, price(100, Double.NaN));
+            assertEquals(op, 0, drain(orders).size() + drain(prices).size());
+        }
+    }
+
+    @Test
+    public void changeDoesNotMatchOnTheFirstUpdate() {
+        for (String op : new String[]{"<", "<=", ">", ">=", "==", "!="}) {
+            RuleBook<MarketPrice> prices = compile("moved: * price.volume.change " + op + " 0").getPrices();
+            prices.evaluate(SYMBOL, volume(1000));
+            assertEquals(op, 0, drain(prices).size());
+        }
+        RuleBook<MarketPrice> prices = compile("moved: * price.volume.change != 0").getPrices();
+        prices.evaluate(SYMBOL, volume(1000));
+        prices.evaluate(SYMBOL, volume(1000));
+        prices.evaluate(SYMBOL, volume(1010));
+        assertEquals(1, drain(prices).size());
+    }
+
+    @Test
+    public void stateRulesFireOnceAndReArmWhenTheConditionClears() {
+        RuleBook<MarketPrice> prices = compile("high: * price.lastPrice > 100").getPrices();
+        for (double lastPrice : new double[]{101, 102, 99, 103, 104})
+            prices.evaluate(SYMBOL, price(lastPrice, 0));
+
+        List<FiredAlert> fired = drain(prices);
+        assertEquals(2, fired.size());
+        assertEquals("high", fired.get(0).getRule());
+        assertEquals("ALERTS", fired.get(0).getSymbol());
+        assertEquals(101, fired.get(0).getValue(), 0);
+        assertEquals(103, fired.get(1).getValue(), 0);
+    }
+
+    @Test
+    public void comparesAgainstAnotherFieldOfTheSameRecord() {
+        RuleBook<MarketPrice> prices = compile("near-upper: * price.lastPrice >= price.upperCircuit * 0.99").getPrices();
+        prices.evaluate(SYMBOL, price(98, 100));
+        prices.evaluate(SYMBOL, price(99, 100));
+        assertEquals(1, drain(prices).size());
+    }
+
+    @Test
+    public void changeIsTheDifferenceFromTheSymbolsPreviousUpdate() {
+        RuleBook<MarketPrice> prices = compile("spike: * price.volume.change > 100").getPrices();
+        // the first update has nothing to compare with
+        prices.evaluate(SYMBOL, volume(1000));
+        prices.evaluate(SYMBOL, volume(1050));
+        prices.evaluate(SYMBOL, volume(1200));
+
+        List<FiredAlert> fired = drain(prices);
+        assertEquals(1, fired.size());
+        assertEquals(150, fired.get(0).getValue(), 0);
+    }
+
+    @Test
+    public void textFieldsCompareDecodedAndStringValues() {
+        RuleBook<Order> rejected = compile("rejected: * order.orderStatus == REJECTED").getOrders();
+        rejected.evaluate(SYMBOL, status(new Utf8("REJECTED")));
+        rejected.evaluate(SYMBOL, status("REJECTED"));
+        rejected.evaluate(SYMBOL, status("FILLED"));
+        assertEquals(2, drain(rejected).size());
+
+        RuleBook<Order> notFilled = compile("open: * order.orderStatus != FILLED").getOrders();
+        notFilled.evaluate(SYMBOL, status(new Utf8("FILLED")));
+        notFilled.evaluate(SYMBOL, status("NEW"));
+        assertEquals(1, drain(notFilled).size());
+    }
+
+    @Test
+    public void rulesOnOtherSymbolsDoNotRun() {
+        AlertRules rules = compile("other: NOT_ALERTS order.quantity > 0");
+        rules.getOrders().evaluate(SYMBOL, limit(1));
+        assertEquals(0, drain(rules.getOrders()).size());
+    }
+
+    @Test
+    public void rejectsMalformedRules() {
+        assertRejected("no name here");
+        assertRejected("short: * price.lastPrice >");
+        assertRejected("stream: * trade.price > 1");
+        assertRejected("field: * price.bid > 1");
+        assertRejected("operator: * price.lastPrice => 1");
+        assertRejected("arithmetic: * price.lastPrice > price.open % 2");
+        assertRejected("operand: * price.lastPrice > price.open * x");
+        assertRejected("streams: * price.lastPrice > quote.bid");
+        assertRejected("bare: * price.lastPrice > open");
+        assertRejected("order-change: * order.filledQuantity.change > 0");
+        assertRejected("text-operator: * order.side < BUY");
+        assertRejected("text-arithmetic: * order.side == BUY * 2");
+    }
+
+    private static void assertFires(int expected, String op) {
+        RuleBook<Order> orders = compile("limit: * order.limitPrice " + op + " 100").getOrders();
+        for (double limitPrice : new double[]{99, 100, 101})
+            orders.evaluate(SYMBOL, limit(limitPrice));
+        assertEquals(op, expected, drain(orders).size());
+    }
+
+    private static void assertRejected(String rule) {
+        try {
+            compile(rule);
+            fail("compiled " + rule);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Alert rule line 1: "));
+        }
+    }
+
+    private static AlertRules compile(String rule) {
+        return AlertRules.compile(Collections.singletonList(rule));
+    }
+
+    private static List<FiredAlert> drain(RuleBook<?> book) {
+        List<FiredAlert> fired = new ArrayList<>();
+        book.getAlerts().drain(fired::add);
+        return fired;
+    }
+
+    private static MarketPrice price(double lastPrice, double upperCircuit) {
+        MarketPrice price = new MarketPrice();
+        price.setLastPrice(lastPrice);
+        price.setUperCircuit(upperCircuit);
+        return price;
+    }
+
+    private static MarketPrice volume(long volume) {
+        MarketPrice price = new MarketPrice();
+        price.setVolume(volume);
+        return price;
+    }
+
+    private static Order limit(double limitPrice) {
+        Order order = new Order();
+        order.setLimitPrice(limitPrice);
+        order.setQuantity(1L);
+        return order;
+    }
+
+    private static Order status(CharSequence status) {
+        Order order = new Order();
+        order.setOrderStatus(status);
+        return order;
+    }
+}
@@ -0,0 +1,104 @@
+package com.ashish.md.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class CandleSeriesTest {
+
+    @Test
+    public void tradesInOneIntervalMakeOneCandle() {
+        CandleSeries candles = new CandleSeries(1_000, 100);
+        candles.onTrade(10_100, 100, 5);
+        candles.onTrade(10_400, 103, 1);
+        candles.onTrade(10_700, 98, 2);
+        candles.onTrade(10_999, 101, 3);
+
+        assertEquals(1, candles.size());
+        assertEquals(10_000, candles.start(0));
+        assertEquals(100, candles.open(0), 0);
+        assertEquals(103, candles.high(0), 0);
+        assertEquals(98, candles.low(0), 0);
+        assertEquals(101, candles.close(0), 0);
+        assertEquals(11, candles.volume(0));
+    }
+
+    @Test
+    public void onlyIntervalsWithTradesGetACandle() {
+        CandleSeries candles = new CandleSeries(1_000, 100);
+        candles.onTrade(1_500, 10, 1);
+        candles.onTrade(4_200, 11, 1);
+        assertEquals(2, candles.size());
+        assertEquals(1_000, candles.start(0));
+        assertEquals(4_000, candles.start(1));
+        assertEquals(1, candles.firstAtOrAfter(2_000));
+        assertEquals(2, candles.firstAtOrAfter(5_000));
+    }
+
+    @Test
+    public void aLateTradeWidensItsCandleButIsNotItsClose() {
+        CandleSeries candles = new CandleSeries(1_000, 100);
+        candles.onTrade(1_000, 10, 1);
+        candles.onTrade(2_000, 11, 1);
+        candles.onTrade(1_500, 13, 4);
+
+        assertEquals(2, candles.size());
+        assertEquals(13, candles.high(0), 0);
+        assertEquals(10, candles.close(0), 0);
+        assertEquals(5, candles.volume(0));
+        // too old to have a candle any more: ignored
+        candles.onTrade(500, 1, 1);
+        assertEquals(2, candles.size());
+        assertEquals(10, candles.low(0), 0);
+    }
+
+    @Test
+    public void negativeTimesFallInTheIntervalBelow() {
+        CandleSeries candles = new CandleSeries(1_000, 10);
+        candles.onTrade(-1, 10, 1);
+        assertEquals(-1_000, candles.start(0));
+    }
+
+    @Test
+    public void oldestCandlesAreOverwrittenPastTheCap() {
+        // grows from 64 to the cap, then wraps
+        CandleSeries candles = new CandleSeries(1_000, 100);
+        for (int i = 0; i < 250; i++)
+            candles.onTrade(i * 1_000L, i, 1);
+        assertEquals(100, candles.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals((150 + i) * 1_000L, candles.start(i));
+            assertEquals(150 + i, candles.close(i), 0);
+        }
+        assertEquals(0, candles.firstAtOrAfter(0));
+        assertEquals(50, candles.firstAtOrAfter(200_000));
+    }
+
+    @Test
+    public void versionMovesWithEveryTrade() {
+        CandleSeries candles = new CandleSeries(1_000, 10);
+        long before = candles.getVersion();
+        candles.onTrade(1_000, 10, 1);
+        assertNotEquals(before, candles.getVersion());
+    }
+
+    @Test
+    public void aggregatorKeepsEachIntervalPerSymbol() {
+        CandleAggregator aggregator = new CandleAggregator(60 * 60 * 1000);
+        int symbol = SymbolDictionary.SYMBOLS.id("CANDLES");
+        aggregator.onTrade(symbol, 1_000, 10, 1);
+        aggregator.onTrade(symbol, 6_000, 12, 1);
+        aggregator.onTrade(-1, 6_000, 99, 1);
+
+        CandleSeries[] series = aggregator.getSeries("CANDLES");
+        assertEquals(CandleAggregator.INTERVALS.length, series.length);
+        assertEquals(2, series[0].size());
+        assertEquals(2, series[1].size());
+        assertEquals(1, series[2].size());
+        assertEquals(12, series[2].high(0), 0);
+        assertEquals("CANDLES", aggregator.getLastSymbol());
+        assertNull(aggregator.getSeries("NO_TRADES"));
+    }
+}
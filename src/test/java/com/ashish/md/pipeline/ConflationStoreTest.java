@@ -0,0 +1,98 @@
+package com.ashish.md.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConflationStoreTest {
+
+    @Test
+    public void aSymbolIsDrainedOnceWithItsLatestValue() {
+        ConflationStore<String> store = new ConflationStore<>(4);
+        store.publish(7, "a");
+        store.publish(3, "b");
+        store.publish(7, "c");
+        assertEquals(2, store.dirtyCount());
+
+        List<String> drained = new ArrayList<>();
+        assertEquals(2, store.drainDirty((symbol, value) -> drained.add(symbol + "=" + value)));
+        // in the order the symbols first changed
+        assertEquals(Arrays.asList("7=c", "3=b"), drained);
+        assertEquals(3, store.getPublished());
+        assertEquals(0, store.drainDirty((symbol, value) -> fail()));
+    }
+
+    @Test
+    public void aSymbolChangedAgainAfterADrainIsDrainedAgain() {
+        ConflationStore<String> store = new ConflationStore<>(4);
+        List<String> drained = new ArrayList<>();
+        for (int round = 0; round < 10; round++) {
+            store.publish(1, "v" + round);
+            store.drainDirty((symbol, value) -> drained.add(value));
+        }
+        assertEquals(10, drained.size());
+        assertEquals("v9", drained.get(9));
+    }
+
+    @Test
+    public void dropsSymbolsPastTheCapacityAndRecordsWithoutOne() {
+        ConflationStore<String> store = new ConflationStore<>(2);
+        assertTrue(store.publish(1, "a"));
+        assertTrue(store.publish(500, "b"));
+        assertFalse(store.publish(2, "c"));
+        assertFalse(store.publish(-1, "d"));
+        // symbols that already have a slot still publish
+        assertTrue(store.publish(500, "e"));
+        assertEquals(2, store.getDropped());
+        assertEquals(3, store.getPublished());
+    }
+
+    @Test
+    public void aThrowingSinkDoesNotGetTheSameValueAgain() {
+        ConflationStore<String> store = new ConflationStore<>(4);
+        store.publish(1, "bad");
+        store.publish(2, "good");
+        try {
+            store.drainDirty((symbol, value) -> {
+                if (value.equals("bad"))
+                    throw new IllegalStateException(value);
+            });
+            fail("the sink's exception should reach the caller");
+        } catch (IllegalStateException expected) {
+            // the render loop logs it and drains again next frame
+        }
+        List<String> drained = new ArrayList<>();
+        store.drainDirty((symbol, value) -> drained.add(value));
+        assertEquals(Arrays.asList("good"), drained);
+    }
+
+    @Test
+    public void theReaderEndsOnTheWritersLastValue() throws InterruptedException {
+        ConflationStore<Long> store = new ConflationStore<>(16);
+        long updates = 100_000;
+        Thread writer = new Thread(() -> {
+            for (long i = 1; i <= updates; i++)
+                store.publish((int) (i % 16), i);
+        });
+        writer.start();
+        long[] latest = new long[16];
+        while (writer.isAlive()) {
+            store.drainDirty((symbol, value) -> {
+                // conflation may skip values, never go back
+                assertTrue(value > latest[symbol]);
+                latest[symbol] = value;
+            });
+        }
+        writer.join();
+        store.drainDirty((symbol, value) -> latest[symbol] = value);
+        for (int symbol = 0; symbol < 16; symbol++)
+            assertEquals(updates - (updates - symbol) % 16, latest[symbol]);
+    }
+}
@@ -0,0 +1,116 @@
+package com.ashish.md.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EventRingBufferTest {
+
+    @Test
+    public void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(2, new EventRingBuffer<Integer>(0).capacity());
+        assertEquals(8, new EventRingBuffer<Integer>(5).capacity());
+        assertEquals(8, new EventRingBuffer<Integer>(8).capacity());
+    }
+
+    @Test
+    public void drainsInOrderAcrossTheWrap() {
+        EventRingBuffer<Integer> ring = new EventRingBuffer<>(4);
+        List<Integer> drained = new ArrayList<>();
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++)
+                assertTrue(ring.offer(next++));
+            assertEquals(3, ring.size());
+            assertEquals(3, ring.drain(drained::add));
+            assertEquals(0, ring.size());
+        }
+        for (int i = 0; i < next; i++)
+            assertEquals(Integer.valueOf(i), drained.get(i));
+    }
+
+    @Test
+    public void drainStopsAtTheLimit() {
+        EventRingBuffer<Integer> ring = new EventRingBuffer<>(8);
+        for (int i = 0; i < 5; i++)
+            ring.offer(i);
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, ring.drain(drained::add, 2));
+        assertEquals(3, ring.drain(drained::add, 10));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), drained);
+    }
+
+    @Test
+    public void dropsAndCountsWhenFull() {
+        EventRingBuffer<Integer> ring = new EventRingBuffer<>(4);
+        for (int i = 0; i < 4; i++)
+            assertTrue(ring.offer(i));
+        assertFalse(ring.offer(4));
+        assertFalse(ring.offer(5));
+        assertEquals(2, ring.getDropped());
+        assertEquals(1, ring.getOverflows());
+
+        List<Integer> drained = new ArrayList<>();
+        ring.drain(drained::add, 1);
+        assertTrue(ring.offer(6));
+        assertFalse(ring.offer(7));
+        assertEquals(3, ring.getDropped());
+        // accepting 6 ended the first overflow, rejecting 7 started a second
+        assertEquals(2, ring.getOverflows());
+
+        ring.drain(drained::add);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 6), drained);
+    }
+
+    @Test
+    public void aThrowingSinkConsumesTheEventItThrewOn() {
+        EventRingBuffer<Integer> ring = new EventRingBuffer<>(4);
+        for (int i = 0; i < 4; i++)
+            ring.offer(i);
+        List<Integer> drained = new ArrayList<>();
+        try {
+            ring.drain(event -> {
+                if (event == 1)
+                    throw new IllegalStateException("bad row");
+                drained.add(event);
+            });
+            fail("the sink's exception should reach the caller");
+        } catch (IllegalStateException expected) {
+            // the render loop logs it and drains again next frame
+        }
+        assertEquals(2, ring.size());
+        assertEquals(2, ring.drain(drained::add));
+        assertEquals(Arrays.asList(0, 2, 3), drained);
+        // the slots are free again
+        for (int i = 0; i < 4; i++)
+            assertTrue(ring.offer(i));
+    }
+
+    @Test
+    public void handsEveryEventOverFromAnotherThread() throws InterruptedException {
+        EventRingBuffer<Long> ring = new EventRingBuffer<>(64);
+        long events = 100_000;
+        Thread producer = new Thread(() -> {
+            for (long i = 0; i < events; i++) {
+                while (!ring.offer(i))
+                    Thread.yield();
+            }
+        });
+        producer.start();
+        AtomicLong expected = new AtomicLong();
+        while (expected.get() < events) {
+            if (ring.drain(event -> assertEquals(expected.getAndIncrement(), (long) event)) == 0)
+                Thread.yield();
+        }
+        producer.join();
+        assertEquals(0, ring.size());
+    }
+}
@@ -0,0 +1,136 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.AskDepth;
+import com.ashish.marketdata.avro.BidDepth;
+import com.ashish.marketdata.avro.MarketByPrice;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrderBooksTest {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty("exsim.nse.marketbyprice.book");
+        System.clearProperty("md.ring.capacity");
+    }
+
+    @Test
+    public void deltasInsertModifyAndDeleteLevelsInPriceOrder() {
+        OrderBook book = new OrderBook();
+        book.applyDelta(depth("BOOK", new double[]{100, 10, 101, 20, 99, 30}, new double[]{102, 5, 104, 6, 103, 7}));
+        assertEquals(3, book.bidLevels());
+        assertEquals(101, book.bidPrice(0), 0);
+        assertEquals(100, book.bidPrice(1), 0);
+        assertEquals(99, book.bidPrice(2), 0);
+        assertEquals(102, book.askPrice(0), 0);
+        assertEquals(104, book.askPrice(2), 0);
+
+        // size 0 deletes, a known price is modified, an unknown size 0 is ignored
+        book.applyDelta(depth("BOOK", new double[]{101, 0, 100, 15, 98, 0}, new double[]{103, 0}));
+        assertEquals(2, book.bidLevels());
+        assertEquals(100, book.bidPrice(0), 0);
+        assertEquals(15, book.bidSize(0));
+        assertEquals(2, book.askLevels());
+        assertEquals(104, book.askPrice(1), 0);
+    }
+
+    @Test
+    public void aSnapshotReplacesTheBookAndClearsStale() {
+        OrderBook book = new OrderBook();
+        book.applyDelta(depth("BOOK", new double[]{100, 10, 99, 10}, new double[]{101, 10}));
+        book.markStale();
+        long version = book.getVersion();
+        book.applySnapshot(depth("BOOK", new double[]{98, 1}, new double[0]));
+
+        assertFalse(book.isStale());
+        assertTrue(book.getVersion() > version);
+        assertEquals(1, book.bidLevels());
+        assertEquals(98, book.bidPrice(0), 0);
+        assertEquals(0, book.askLevels());
+    }
+
+    @Test
+    public void manyLevelsStaySorted() {
+        OrderBook book = new OrderBook();
+        List<Double> prices = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            prices.add((double) ((i * 37) % 100));
+        for (double price : prices)
+            book.applyDelta(depth("BOOK", new double[]{price, 1}, new double[]{price + 1000, 1}));
+        assertEquals(100, book.bidLevels());
+        for (int level = 0; level < 100; level++) {
+            assertEquals(99 - level, book.bidPrice(level), 0);
+            assertEquals(1000 + level, book.askPrice(level), 0);
+        }
+    }
+
+    @Test
+    public void snapshotFeedsApplyTheLatestBookPerSymbol() {
+        MarketDepthContainer container = new MarketDepthContainer();
+        container.setMarketByPrice(null, depth("SNAP", new double[]{100, 1}, new double[0]));
+        container.setMarketByPrice(null, depth("SNAP", new double[]{101, 2}, new double[0]));
+        OrderBooks books = new OrderBooks();
+        assertEquals(1, books.drain(container));
+
+        OrderBook book = books.get("SNAP");
+        assertEquals(1, book.bidLevels());
+        assertEquals(101, book.bidPrice(0), 0);
+        assertEquals("SNAP", books.getLastSymbol());
+        assertNull(books.get("NOT_QUOTED"));
+    }
+
+    @Test
+    public void droppedDeltasMarkEveryBookStaleUntilItsSnapshot() {
+        System.setProperty("exsim.nse.marketbyprice.book", "delta");
+        System.setProperty("md.ring.capacity", "4");
+        MarketDepthContainer container = new MarketDepthContainer();
+        OrderBooks books = new OrderBooks();
+        container.setMarketByPrice(null, depth("DELTA_A", new double[]{100, 1}, new double[0]));
+        container.setMarketByPrice(null, depth("DELTA_B", new double[]{50, 1}, new double[0]));
+        assertEquals(2, books.drain(container));
+        assertEquals(0, books.staleCount());
+
+        // overflow the ring: the fifth and sixth deltas are dropped
+        for (int i = 0; i < 6; i++)
+            container.setMarketByPrice(null, depth("DELTA_A", new double[]{101 + i, 1}, new double[0]));
+        assertEquals(2, container.getDeltas().getDropped());
+        books.drain(container);
+        assertEquals(2, books.staleCount());
+        assertTrue(books.get("DELTA_A").isStale());
+
+        // a book first seen after the drop starts stale too
+        container.setMarketByPrice(null, depth("DELTA_C", new double[]{10, 1}, new double[0]));
+        books.drain(container);
+        assertTrue(books.get("DELTA_C").isStale());
+
+        // a snapshot, queued in order with the deltas, replaces its symbol's book only
+        container.setSnapshot(null, depth("DELTA_A", new double[]{200, 5}, new double[0]));
+        container.setMarketByPrice(null, depth("DELTA_A", new double[]{201, 1}, new double[0]));
+        books.drain(container);
+        OrderBook resynced = books.get("DELTA_A");
+        assertFalse(resynced.isStale());
+        assertEquals(2, resynced.bidLevels());
+        assertEquals(201, resynced.bidPrice(0), 0);
+        assertEquals(200, resynced.bidPrice(1), 0);
+        assertEquals(2, books.staleCount());
+    }
+
+    // levels as price, size pairs; orders is always 1
+    private static MarketByPrice depth(String symbol, double[] bids, double[] asks) {
+        List<BidDepth> bidList = new ArrayList<>();
+        for (int i = 0; i < bids.length; i += 2)
+            bidList.add(new BidDepth(bids[i], (long) bids[i + 1], 1L));
+        List<AskDepth> askList = new ArrayList<>();
+        for (int i = 0; i < asks.length; i += 2)
+            askList.add(new AskDepth(asks[i], (long) asks[i + 1], 1L));
+        return new MarketByPrice(symbol, "NSE", bidList, askList);
+    }
+}
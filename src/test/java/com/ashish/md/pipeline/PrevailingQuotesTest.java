@@ -0,0 +1,84 @@
+package com.ashish.md.pipeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrevailingQuotesTest {
+
+    private final double[] quote = new double[2];
+
+    @Test
+    public void findsTheNewestQuoteAtOrBeforeTheTime() {
+        PrevailingQuotes quotes = new PrevailingQuotes(4);
+        quotes.publish(1, 10, 99, 101);
+        quotes.publish(1, 20, 100, 102);
+        quotes.publish(1, 30, 101, 103);
+
+        assertFalse(quotes.prevailing(1, 9, quote));
+        assertTrue(quotes.prevailing(1, 25, quote));
+        assertEquals(100, quote[0], 0);
+        assertEquals(102, quote[1], 0);
+        assertTrue(quotes.prevailing(1, 30, quote));
+        assertEquals(101, quote[0], 0);
+        assertFalse(quotes.prevailing(2, 30, quote));
+    }
+
+    @Test
+    public void keepsOnlyTheLastFewQuotes() {
+        PrevailingQuotes quotes = new PrevailingQuotes(4);
+        for (int i = 1; i <= PrevailingQuotes.HISTORY + 1; i++)
+            quotes.publish(0, i * 10, i, i + 1);
+        // the first quote was overwritten
+        assertFalse(quotes.prevailing(0, 10, quote));
+        assertTrue(quotes.prevailing(0, 20, quote));
+        assertEquals(2, quote[0], 0);
+    }
+
+    @Test
+    public void dropsSymbolsOutsideTheCapacity() {
+        PrevailingQuotes quotes = new PrevailingQuotes(2);
+        assertFalse(quotes.publish(-1, 10, 1, 2));
+        assertFalse(quotes.publish(2, 10, 1, 2));
+        assertEquals(2, quotes.getDropped());
+        assertFalse(quotes.prevailing(-1, 10, quote));
+        assertFalse(quotes.prevailing(2, 10, quote));
+    }
+
+    @Test
+    public void watermarkIsTheLatestQuoteTime() {
+        PrevailingQuotes quotes = new PrevailingQuotes(4);
+        assertEquals(Long.MIN_VALUE, quotes.getWatermark());
+        quotes.publish(0, 20, 1, 2);
+        quotes.publish(1, 10, 1, 2);
+        assertEquals(20, quotes.getWatermark());
+    }
+
+    @Test
+    public void readersNeverSeeAHalfWrittenQuote() throws InterruptedException {
+        PrevailingQuotes quotes = new PrevailingQuotes(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        // every quote has ask = bid + 1, so a torn read shows up as a different spread
+        Thread writer = new Thread(() -> {
+            for (long time = 0; running.get(); time++)
+                quotes.publish(0, time, time, time + 1);
+        });
+        writer.start();
+        try {
+            long reads = 0;
+            while (reads < 200_000) {
+                if (quotes.prevailing(0, Long.MAX_VALUE, quote)) {
+                    assertEquals(1, quote[1] - quote[0], 0);
+                    reads++;
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+}
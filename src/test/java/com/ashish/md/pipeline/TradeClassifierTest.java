@@ -0,0 +1,106 @@
+package com.ashish.md.pipeline;
+
+import com.ashish.marketdata.avro.Trade;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TradeClassifierTest {
+
+    private static final int SYMBOL = 3;
+
+    private final PrevailingQuotes quotes = new PrevailingQuotes(8);
+    private final TradeClassifier classifier = new TradeClassifier(quotes, 100);
+    private final List<ClassifiedTrade> released = new ArrayList<>();
+
+    @Test
+    public void classifiesAgainstTheMidOfThePrevailingQuote() {
+        quotes.publish(SYMBOL, 10, 99, 101);
+        classifier.offer(SYMBOL, trade(10, 100.5), 0, released::add);
+        classifier.offer(SYMBOL, trade(10, 99.5), 0, released::add);
+
+        assertEquals(2, released.size());
+        assertEquals(TradeClassifier.Aggressor.BUY, released.get(0).getAggressor());
+        assertEquals(99, released.get(0).getBid(), 0);
+        assertEquals(101, released.get(0).getAsk(), 0);
+        assertEquals(TradeClassifier.Aggressor.SELL, released.get(1).getAggressor());
+    }
+
+    @Test
+    public void atTheMidTheTickTestDecides() {
+        quotes.publish(SYMBOL, 10, 99, 101);
+        classifier.offer(SYMBOL, trade(10, 99.5), 0, released::add);
+        classifier.offer(SYMBOL, trade(10, 100), 0, released::add);
+        // a zero tick keeps the last direction
+        classifier.offer(SYMBOL, trade(10, 100), 0, released::add);
+
+        assertEquals(TradeClassifier.Aggressor.BUY, released.get(1).getAggressor());
+        assertEquals(TradeClassifier.Aggressor.BUY, released.get(2).getAggressor());
+    }
+
+    @Test
+    public void holdsATradeUntilTheQuoteFeedReachesItsTime() {
+        quotes.publish(SYMBOL, 10, 99, 101);
+        Trade trade = trade(20, 100.5);
+        classifier.offer(SYMBOL, trade, 0, released::add);
+        assertEquals(1, classifier.heldCount());
+        assertTrue(released.isEmpty());
+
+        // the quote that stood at the trade's time arrives late and moves the mid above the trade
+        quotes.publish(SYMBOL, 20, 100.5, 101.5);
+        assertEquals(1, classifier.release(1, released::add));
+        assertSame(trade, released.get(0).getTrade());
+        assertEquals(TradeClassifier.Aggressor.SELL, released.get(0).getAggressor());
+        assertEquals(0, classifier.getTimedOut());
+    }
+
+    @Test
+    public void releasesAfterTheHoldAgainstTheQuotesSeenSoFar() {
+        quotes.publish(SYMBOL, 10, 99, 101);
+        classifier.offer(SYMBOL, trade(20, 100.5), 0, released::add);
+        assertEquals(0, classifier.release(99, released::add));
+        assertEquals(1, classifier.release(100, released::add));
+        assertEquals(TradeClassifier.Aggressor.BUY, released.get(0).getAggressor());
+        assertEquals(1, classifier.getTimedOut());
+    }
+
+    @Test
+    public void tradesLeaveInArrivalOrder() {
+        quotes.publish(SYMBOL, 10, 99, 101);
+        Trade waiting = trade(20, 100);
+        Trade ready = trade(10, 100);
+        Trade unknown = trade(10, 100);
+        classifier.offer(SYMBOL, waiting, 0, released::add);
+        classifier.offer(SYMBOL, ready, 0, released::add);
+        classifier.offer(-1, unknown, 0, released::add);
+        // ready and unknown could go, but not ahead of the trade that still waits
+        assertEquals(3, classifier.heldCount());
+
+        quotes.publish(SYMBOL + 1, 20, 50, 51);
+        assertEquals(3, classifier.release(0, released::add));
+        assertSame(waiting, released.get(0).getTrade());
+        assertSame(ready, released.get(1).getTrade());
+        assertSame(unknown, released.get(2).getTrade());
+        assertEquals(TradeClassifier.Aggressor.UNKNOWN, released.get(2).getAggressor());
+    }
+
+    @Test
+    public void noHoldClassifiesOnArrival() {
+        TradeClassifier onArrival = new TradeClassifier(quotes, 0);
+        onArrival.offer(SYMBOL, trade(20, 100), 0, released::add);
+        assertEquals(1, released.size());
+        assertEquals(0, onArrival.heldCount());
+    }
+
+    private static Trade trade(long time, double price) {
+        Trade trade = new Trade();
+        trade.setTime(time);
+        trade.setPrice(price);
+        return trade;
+    }
+}
@@ -0,0 +1,101 @@
+package com.ashish.md.viewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class OrderStatisticTreeTest {
+
+    // rows are ints; the tree sorts them by value, ties by sequence
+    private static final Comparator<Integer> BY_VALUE = Integer::compare;
+
+    @Test
+    public void insertReturnsRankAndKeepsTiesInArrivalOrder() {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(BY_VALUE);
+        assertEquals(0, tree.insert(5, 0));
+        assertEquals(0, tree.insert(3, 1));
+        // a tie goes after the rows already holding its value
+        assertEquals(2, tree.insert(5, 2));
+        assertEquals(3, tree.insert(5, 3));
+        assertEquals(4, tree.insert(7, 4));
+        assertEquals(1, tree.insert(4, 5));
+
+        assertEquals(6, tree.size());
+        assertEquals(Integer.valueOf(3), tree.get(0));
+        assertEquals(Integer.valueOf(4), tree.get(1));
+        assertEquals(Integer.valueOf(5), tree.get(4));
+        assertEquals(Integer.valueOf(7), tree.get(5));
+    }
+
+    @Test
+    public void removeFindsTheExactTiedRow() {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(BY_VALUE);
+        tree.insert(5, 0);
+        tree.insert(5, 1);
+        tree.insert(5, 2);
+        tree.insert(1, 3);
+
+        assertEquals(2, tree.remove(5, 1));
+        assertEquals(-1, tree.remove(5, 1));
+        assertEquals(-1, tree.remove(4, 9));
+        assertEquals(2, tree.remove(5, 2));
+        assertEquals(1, tree.remove(5, 0));
+        assertEquals(0, tree.remove(1, 3));
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    public void withoutComparatorRowsStayInArrivalOrder() {
+        OrderStatisticTree<String> tree = new OrderStatisticTree<>(null);
+        assertEquals(0, tree.insert("c", 0));
+        assertEquals(1, tree.insert("a", 1));
+        assertEquals(2, tree.insert("b", 2));
+
+        assertEquals(1, tree.remove("a", 1));
+        assertEquals("c", tree.get(0));
+        assertEquals("b", tree.get(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getPastTheEndThrows() {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(BY_VALUE);
+        tree.insert(1, 0);
+        tree.get(1);
+    }
+
+    @Test
+    public void matchesASortedListUnderRandomInsertsAndRemoves() {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>(BY_VALUE);
+        // the reference: (value, sequence) pairs kept sorted
+        List<long[]> expected = new ArrayList<>();
+        Random random = new Random(42);
+        for (long sequence = 0; sequence < 20_000; sequence++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                // few distinct values, so most rows tie with others
+                int value = random.nextInt(50);
+                int rank = 0;
+                while (rank < expected.size() && compare(expected.get(rank), value, sequence) < 0)
+                    rank++;
+                expected.add(rank, new long[]{value, sequence});
+                assertEquals(rank, tree.insert(value, sequence));
+            } else {
+                int rank = random.nextInt(expected.size());
+                long[] row = expected.remove(rank);
+                assertEquals(rank, tree.remove((int) row[0], row[1]));
+            }
+            assertEquals(expected.size(), tree.size());
+        }
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals((int) expected.get(i)[0], (int) tree.get(i));
+    }
+
+    private static int compare(long[] row, int value, long sequence) {
+        int compared = Long.compare(row[0], value);
+        return compared != 0 ? compared : Long.compare(row[1], sequence);
+    }
+}